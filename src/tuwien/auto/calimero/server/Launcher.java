@@ -61,11 +61,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.function.Function;
@@ -80,6 +82,7 @@ import tuwien.auto.calimero.GroupAddress;
 import tuwien.auto.calimero.IndividualAddress;
 import tuwien.auto.calimero.KNXAddress;
 import tuwien.auto.calimero.KNXException;
+import tuwien.auto.calimero.KNXFormatException;
 import tuwien.auto.calimero.KNXIllegalArgumentException;
 import tuwien.auto.calimero.Keyring;
 import tuwien.auto.calimero.KnxRuntimeException;
@@ -108,6 +111,7 @@ import tuwien.auto.calimero.mgmt.PropertyAccess.PID;
 import tuwien.auto.calimero.server.gateway.KnxServerGateway;
 import tuwien.auto.calimero.server.gateway.SubnetConnector;
 import tuwien.auto.calimero.server.knxnetip.DefaultServiceContainer;
+import tuwien.auto.calimero.server.knxnetip.DefaultServiceContainer.OverflowPolicy;
 import tuwien.auto.calimero.server.knxnetip.KNXnetIPServer;
 import tuwien.auto.calimero.server.knxnetip.RoutingServiceContainer;
 import tuwien.auto.calimero.server.knxnetip.ServiceContainer;
@@ -150,6 +154,12 @@ public class Launcher implements Runnable, AutoCloseable
 		public static final String addAddresses = "additionalAddresses";
 		/** */
 		public static final String disruptionBuffer = "disruptionBuffer";
+		/** */
+		public static final String clientQueue = "clientQueue";
+		/** */
+		public static final String eventQueue = "eventQueue";
+		/** */
+		public static final String frameTrace = "frameTrace";
 
 		/** */
 		public static final String attrName = "name";
@@ -165,10 +175,18 @@ public class Launcher implements Runnable, AutoCloseable
 		public static final String attrOutgoingNetIf = "outgoingNetIf";
 		/** */
 		public static final String attrUdpPort = "udpPort";
+		/** Directory of the persistent disruption buffer log. */
+		public static final String attrLogDir = "logDir";
+		/** Maximum size of a disruption buffer log segment [bytes]. */
+		public static final String attrLogSegmentSize = "logSegmentSize";
+		/** Maximum number of disruption buffer log segments. */
+		public static final String attrLogSegments = "logSegments";
 		/** */
 		public static final String attrClass = "class";
 		/** */
 		public static final String attrReuseEP = "reuseCtrlEP";
+		/** All connections of a service container share one data endpoint: { "true", "false" (default) }. */
+		public static final String attrSharedDataEP = "sharedDataEP";
 		/** */
 		public static final String attrNetworkMonitoring = "networkMonitoring";
 		/** KNX subnet type: ["ip", "knxip", "usb", "ft12", "tpuart", "virtual", "user-supplied"]. */
@@ -181,6 +199,22 @@ public class Launcher implements Runnable, AutoCloseable
 		public static final String attrRef = "ref";
 		/** */
 		public static final String attrExpirationTimeout = "expirationTimeout";
+		/** */
+		public static final String attrCapacity = "capacity";
+		/** Client queue overflow policy: { "drop-oldest" (default), "disconnect", "coalesce" }. */
+		public static final String attrOverflow = "overflow";
+		/** Gateway frame dispatching: { "shared" (default), "per-subnet" }. */
+		public static final String attrDispatch = "dispatch";
+		/** Number of selector threads multiplexing the UDP endpoints, 0 (default) for a thread per endpoint. */
+		public static final String attrUdpSelectors = "udpSelectors";
+		/** Serve all tcp connections with a shared non-blocking event loop: { "true", "false" (default) }. */
+		public static final String attrTcpEventLoop = "tcpEventLoop";
+		/** Rate limit of search, connect, and session requests in requests/s: "perSource/global", default "0/0". */
+		public static final String attrRequestRateLimit = "requestRateLimit";
+		/** Frame trace destination addresses, separated by whitespace or comma. */
+		public static final String attrDestinations = "destinations";
+		/** Frame trace sampling, trace about every n-th frame. */
+		public static final String attrSampling = "sampling";
 
 		// the service containers the KNX server will host
 		private final List<ServiceContainer> svcContainers = new ArrayList<>();
@@ -210,6 +244,29 @@ public class Launcher implements Runnable, AutoCloseable
 		private final Map<ServiceContainer, Boolean> udpOnlyContainer = new HashMap<>();
 		private final Map<ServiceContainer, List<StateDP>> timeServer = new HashMap<>();
 
+		// frame trace restrictions of the gateway
+		private final Set<KNXAddress> frameTraceDestinations = new HashSet<>();
+		private int frameTraceSampling = 1;
+
+		private void readFrameTrace(final XmlReader r) throws KNXMLException
+		{
+			final String destinations = ofNullable(r.getAttributeValue(null, attrDestinations)).orElse("");
+			for (final String dst : destinations.split("[\\s,]+")) {
+				if (dst.isEmpty())
+					continue;
+				try {
+					frameTraceDestinations.add(KNXAddress.create(dst));
+				}
+				catch (final KNXFormatException e) {
+					throw new KNXMLException("invalid frame trace destination '" + dst + "'", r);
+				}
+			}
+			frameTraceSampling = ofNullable(r.getAttributeValue(null, attrSampling)).map(Integer::parseUnsignedInt)
+					.orElse(1);
+			if (frameTraceSampling < 1)
+				throw new KNXMLException("invalid frame trace sampling " + frameTraceSampling, r);
+		}
+
 		public Map<String, String> load(final String serverConfigUri) throws KNXMLException
 		{
 			final XmlReader r = XmlInputFactory.newInstance().createXMLReader(serverConfigUri);
@@ -220,6 +277,10 @@ public class Launcher implements Runnable, AutoCloseable
 			final Map<String, String> m = new HashMap<>();
 			put(m, r, XmlConfiguration.attrName);
 			put(m, r, XmlConfiguration.attrFriendly);
+			put(m, r, XmlConfiguration.attrDispatch);
+			put(m, r, XmlConfiguration.attrUdpSelectors);
+			put(m, r, XmlConfiguration.attrTcpEventLoop);
+			put(m, r, XmlConfiguration.attrRequestRateLimit);
 			logger = LoggerFactory.getLogger("calimero.server." + r.getAttributeValue(null, XmlConfiguration.attrName));
 
 			while (r.next() != XmlReader.END_DOCUMENT) {
@@ -243,6 +304,8 @@ public class Launcher implements Runnable, AutoCloseable
 					}
 					else if (name.equals(XmlConfiguration.svcCont))
 						readServiceContainer(r);
+					else if (name.equals(XmlConfiguration.frameTrace))
+						readFrameTrace(r);
 				}
 			}
 			return m;
@@ -260,6 +323,7 @@ public class Launcher implements Runnable, AutoCloseable
 			if (routing && reuse)
 				throw new KNXIllegalArgumentException("with routing activated, reusing control endpoint is not allowed");
 			final boolean monitor = Boolean.parseBoolean(r.getAttributeValue(null, XmlConfiguration.attrNetworkMonitoring));
+			final boolean sharedDataEP = Boolean.parseBoolean(r.getAttributeValue(null, XmlConfiguration.attrSharedDataEP));
 			final int port = Integer.parseUnsignedInt(r.getAttributeValue(null, XmlConfiguration.attrUdpPort));
 			final NetworkInterface netif = getNetIf(r);
 
@@ -293,6 +357,13 @@ public class Launcher implements Runnable, AutoCloseable
 			String expirationTimeout = "0";
 			int disruptionBufferLowerPort = 0;
 			int disruptionBufferUpperPort = 0;
+			int disruptionBufferCapacity = 350;
+			Path disruptionBufferLog = null;
+			int disruptionBufferLogSegmentSize = 1 << 20;
+			int disruptionBufferLogSegments = 4;
+			int clientQueueCapacity = 0;
+			OverflowPolicy clientQueueOverflow = OverflowPolicy.DropOldest;
+			int eventQueueCapacity = 1000;
 			final var tunnelingUserToAddresses = new HashMap<Integer, List<IndividualAddress>>();
 
 			final var timeServerDatapoints = new ArrayList<StateDP>();
@@ -372,6 +443,31 @@ public class Launcher implements Runnable, AutoCloseable
 						final String[] range = ports.orElse("0-65535").split("-", -1);
 						disruptionBufferLowerPort = Integer.parseUnsignedInt(range[0]);
 						disruptionBufferUpperPort = Integer.parseUnsignedInt(range.length > 1 ? range[1] : range[0]);
+						disruptionBufferCapacity = ofNullable(r.getAttributeValue(null, attrCapacity))
+								.map(Integer::parseUnsignedInt).orElse(disruptionBufferCapacity);
+						disruptionBufferLog = ofNullable(r.getAttributeValue(null, attrLogDir)).map(Paths::get)
+								.orElse(null);
+						disruptionBufferLogSegmentSize = ofNullable(r.getAttributeValue(null, attrLogSegmentSize))
+								.map(Integer::parseUnsignedInt).orElse(disruptionBufferLogSegmentSize);
+						disruptionBufferLogSegments = ofNullable(r.getAttributeValue(null, attrLogSegments))
+								.map(Integer::parseUnsignedInt).orElse(disruptionBufferLogSegments);
+					}
+					else if (name.equals(XmlConfiguration.clientQueue)) {
+						clientQueueCapacity = ofNullable(r.getAttributeValue(null, attrCapacity))
+								.map(Integer::parseUnsignedInt).orElse(200);
+						final String overflow = ofNullable(r.getAttributeValue(null, attrOverflow)).orElse("drop-oldest");
+						if ("drop-oldest".equals(overflow))
+							clientQueueOverflow = OverflowPolicy.DropOldest;
+						else if ("disconnect".equals(overflow))
+							clientQueueOverflow = OverflowPolicy.Disconnect;
+						else if ("coalesce".equals(overflow))
+							clientQueueOverflow = OverflowPolicy.Coalesce;
+						else
+							throw new KNXMLException("invalid client queue overflow policy '" + overflow + "'", r);
+					}
+					else if (name.equals(XmlConfiguration.eventQueue)) {
+						eventQueueCapacity = ofNullable(r.getAttributeValue(null, attrCapacity))
+								.map(Integer::parseUnsignedInt).orElse(eventQueueCapacity);
 					}
 					else if (name.equals("timeServer")) {
 						final var formats = List.of(DPTXlatorDate.DPT_DATE.getID(),
@@ -412,7 +508,14 @@ public class Launcher implements Runnable, AutoCloseable
 							sc = new DefaultServiceContainer(svcContName, netifName, hpai, s, reuse, monitor);
 						sc.setActivationState(activate);
 						sc.setDisruptionBuffer(Duration.ofSeconds(Integer.parseUnsignedInt(expirationTimeout)),
-								disruptionBufferLowerPort, disruptionBufferUpperPort);
+								disruptionBufferLowerPort, disruptionBufferUpperPort, disruptionBufferCapacity);
+						if (disruptionBufferLog != null) {
+							final Path dir = disruptionBufferLog.resolve(svcContName.replaceAll("[^\\w.-]", "_"));
+							sc.setDisruptionBufferLog(dir, disruptionBufferLogSegmentSize, disruptionBufferLogSegments);
+						}
+						sc.setClientQueue(clientQueueCapacity, clientQueueOverflow);
+						sc.setEventQueueCapacity(eventQueueCapacity);
+						sc.setSharedDataEndpoint(sharedDataEP);
 						subnetTypes.add(subnetType);
 						if ("emulate".equals(subnetType) && datapoints != null)
 							subnetDatapoints.put(sc, datapoints);
@@ -556,6 +659,7 @@ public class Launcher implements Runnable, AutoCloseable
 	private KnxServerGateway gw;
 
 	private XmlConfiguration xml;
+	private final boolean dispatchPerSubnet;
 
 	// are we directly started from main, and allow terminal-based termination
 	private boolean terminal;
@@ -610,6 +714,16 @@ public class Launcher implements Runnable, AutoCloseable
 		server.setOption(KNXnetIPServer.OPTION_OUTGOING_INTERFACE, netIfOutgoing);
 		final String runDiscovery = config.computeIfAbsent(XmlConfiguration.attrActivate, v -> "true");
 		server.setOption(KNXnetIPServer.OPTION_DISCOVERY_DESCRIPTION, runDiscovery);
+		final String udpSelectors = config.get(XmlConfiguration.attrUdpSelectors);
+		if (udpSelectors != null)
+			server.setOption(KNXnetIPServer.OPTION_UDP_SELECTORS, udpSelectors);
+		final String tcpEventLoop = config.get(XmlConfiguration.attrTcpEventLoop);
+		if (tcpEventLoop != null)
+			server.setOption(KNXnetIPServer.OPTION_TCP_EVENT_LOOP, tcpEventLoop);
+		final String requestRateLimit = config.get(XmlConfiguration.attrRequestRateLimit);
+		if (requestRateLimit != null)
+			server.setOption(KNXnetIPServer.OPTION_REQUEST_RATE_LIMIT, requestRateLimit);
+		dispatchPerSubnet = "per-subnet".equals(config.get(XmlConfiguration.attrDispatch));
 
 		// output the configuration we loaded
 		logger.info("KNXnet/IP discovery network interfaces: listen on [{}], send on [{}]", netIfListen, netIfOutgoing);
@@ -663,6 +777,8 @@ public class Launcher implements Runnable, AutoCloseable
 			// create a gateway which forwards and answers most of the KNX stuff
 			// if no connectors were created, gateway will throw
 			gw = new KnxServerGateway(name, server, connectors.toArray(new SubnetConnector[0]));
+			gw.dispatchPerSubnet(dispatchPerSubnet);
+			gw.traceFrames(xml.frameTraceDestinations, xml.frameTraceSampling);
 			setupTimeServer();
 			xml = null;
 
@@ -0,0 +1,217 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server;
+
+import java.net.InetAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cached snapshot of the local network interface addresses. Enumerating interfaces and resolving the local host are
+ * system calls (and possibly name lookups); the snapshot is shared by all users and refreshed in the background once it
+ * is older than {@value #RefreshInterval} ms, so interface changes become visible shortly after that interval. Until a
+ * refresh completes, callers get the previous snapshot. The local host is only resolved when first asked for.
+ */
+public final class LocalAddresses {
+	static final long RefreshInterval = 5000; // [ms]
+
+	private static final Logger logger = LoggerFactory.getLogger("calimero.server.LocalAddresses");
+
+	private static final ExecutorService refresher = ServerExecutors.newCachedPool("local addresses refresh");
+
+	private static final class Snapshot {
+		final long created = System.nanoTime();
+		final Map<String, List<InetAddress>> addresses = new HashMap<>();
+		final List<NetworkInterface> up = new ArrayList<>();
+
+		Snapshot() {
+			try {
+				NetworkInterface.networkInterfaces().forEach(ni -> {
+					addresses.put(ni.getName(), ni.inetAddresses().collect(Collectors.toUnmodifiableList()));
+					if (isUp(ni))
+						up.add(ni);
+				});
+			}
+			catch (final SocketException e) {
+				logger.warn("enumerating network interfaces", e);
+			}
+		}
+
+		boolean expired() {
+			return LocalAddresses.expired(created);
+		}
+	}
+
+	private static final class LocalHost {
+		final long created = System.nanoTime();
+		final Optional<InetAddress> address = resolveLocalHost();
+
+		boolean expired() {
+			return LocalAddresses.expired(created);
+		}
+	}
+
+	private static volatile Snapshot snapshot;
+	private static volatile LocalHost localHost;
+	private static final AtomicBoolean refreshingSnapshot = new AtomicBoolean();
+	private static final AtomicBoolean refreshingLocalHost = new AtomicBoolean();
+
+	private LocalAddresses() {}
+
+	/**
+	 * Returns the addresses of a network interface.
+	 *
+	 * @param netif network interface name
+	 * @return the interface addresses, or empty if there is no such interface
+	 */
+	public static Optional<List<InetAddress>> of(final String netif) {
+		return Optional.ofNullable(snapshot().addresses.get(netif));
+	}
+
+	/**
+	 * @return the addresses of all network interfaces which are up
+	 */
+	public static Stream<InetAddress> ofInterfacesUp() {
+		final Snapshot s = snapshot();
+		return s.up.stream().flatMap(netif -> s.addresses.get(netif.getName()).stream());
+	}
+
+	/**
+	 * @return the network interfaces which are up and have at least one address assigned
+	 */
+	public static List<NetworkInterface> interfacesUp() {
+		final Snapshot s = snapshot();
+		return s.up.stream().filter(netif -> !s.addresses.get(netif.getName()).isEmpty())
+				.collect(Collectors.toUnmodifiableList());
+	}
+
+	/**
+	 * @return the address of the local host, or empty if the local host name could not be resolved
+	 */
+	public static Optional<InetAddress> localHost() {
+		LocalHost h = localHost;
+		if (h == null) {
+			synchronized (LocalHost.class) {
+				h = localHost;
+				if (h == null) {
+					h = new LocalHost();
+					localHost = h;
+				}
+			}
+		}
+		else if (h.expired())
+			refresh(refreshingLocalHost, () -> localHost = new LocalHost());
+		return h.address;
+	}
+
+	private static Snapshot snapshot() {
+		Snapshot s = snapshot;
+		if (s == null) {
+			synchronized (Snapshot.class) {
+				s = snapshot;
+				if (s == null) {
+					s = new Snapshot();
+					snapshot = s;
+				}
+			}
+		}
+		else if (s.expired())
+			refresh(refreshingSnapshot, () -> snapshot = new Snapshot());
+		return s;
+	}
+
+	// runs at most one refresh of a kind at a time, off the caller thread
+	private static void refresh(final AtomicBoolean refreshing, final Runnable update) {
+		if (!refreshing.compareAndSet(false, true))
+			return;
+		try {
+			refresher.execute(() -> {
+				try {
+					update.run();
+				}
+				finally {
+					refreshing.set(false);
+				}
+			});
+		}
+		catch (final RejectedExecutionException e) {
+			refreshing.set(false);
+		}
+	}
+
+	private static boolean expired(final long created) {
+		return System.nanoTime() - created >= RefreshInterval * 1_000_000L;
+	}
+
+	private static boolean isUp(final NetworkInterface netif) {
+		try {
+			return netif.isUp();
+		}
+		catch (final SocketException e) {
+			return false;
+		}
+	}
+
+	private static Optional<InetAddress> resolveLocalHost() {
+		final long start = System.nanoTime();
+		try {
+			return Optional.of(InetAddress.getLocalHost());
+		}
+		catch (final UnknownHostException e) {}
+		finally {
+			final long elapsed = System.nanoTime() - start;
+			if (elapsed > 3_000_000_000L)
+				logger.warn("slow local host resolution, took {} ms", elapsed / 1000 / 1000);
+		}
+		return Optional.empty();
+	}
+}
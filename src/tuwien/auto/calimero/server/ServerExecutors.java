@@ -0,0 +1,166 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executor factory for the threads of the KNX server, e.g., service loopers, tcp connections, client senders, and
+ * scheduled tasks. By default, executors use platform daemon threads. On JDK 21 or later, setting the system property
+ * {@value #ThreadsProperty} to <code>virtual</code> runs these executors on virtual threads, which considerably
+ * reduces the memory footprint of blocking loops, e.g., with hundreds of tunneling connections.
+ */
+public final class ServerExecutors {
+
+	/** System property selecting the thread type of server executors: <code>platform</code> (default) or
+	 * <code>virtual</code> (requires JDK 21 or later). */
+	public static final String ThreadsProperty = "calimero.server.threads";
+
+	private static final Method ofVirtual;
+	private static final Method builderName;
+	private static final Method builderFactory;
+	private static final Method newThreadPerTaskExecutor;
+
+	static {
+		Method virtual = null;
+		Method name = null;
+		Method factory = null;
+		Method threadPerTask = null;
+		if ("virtual".equals(System.getProperty(ThreadsProperty))) {
+			try {
+				virtual = Thread.class.getMethod("ofVirtual");
+				final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+				name = builder.getMethod("name", String.class, long.class);
+				factory = builder.getMethod("factory");
+				threadPerTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			}
+			catch (final ReflectiveOperationException e) {
+				LoggerFactory.getLogger("calimero.server").warn("virtual threads require JDK 21 or later, use platform threads");
+				virtual = null;
+			}
+		}
+		ofVirtual = virtual;
+		builderName = name;
+		builderFactory = factory;
+		newThreadPerTaskExecutor = threadPerTask;
+	}
+
+	private ServerExecutors() {}
+
+	/**
+	 * @return <code>true</code> if server executors use virtual threads, <code>false</code> for platform threads
+	 */
+	public static boolean virtualThreads() {
+		return ofVirtual != null;
+	}
+
+	/**
+	 * Returns a thread factory for threads with the supplied name prefix; platform threads are daemon threads.
+	 *
+	 * @param name thread name prefix
+	 * @return thread factory
+	 */
+	public static ThreadFactory threadFactory(final String name) {
+		if (virtualThreads()) {
+			try {
+				final Object builder = builderName.invoke(ofVirtual.invoke(null), name + " ", 1L);
+				return (ThreadFactory) builderFactory.invoke(builder);
+			}
+			catch (final ReflectiveOperationException e) {
+				throw new IllegalStateException("creating virtual thread factory", e);
+			}
+		}
+		final AtomicInteger id = new AtomicInteger();
+		return r -> {
+			final Thread t = new Thread(r, name + " " + id.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/**
+	 * Returns an executor creating new threads as needed; with virtual threads, every task gets its own thread.
+	 *
+	 * @param name thread name prefix
+	 * @return executor service
+	 */
+	public static ExecutorService newCachedPool(final String name) {
+		if (virtualThreads()) {
+			try {
+				return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory(name));
+			}
+			catch (final ReflectiveOperationException e) {
+				throw new IllegalStateException("creating virtual thread executor", e);
+			}
+		}
+		return Executors.newCachedThreadPool(threadFactory(name));
+	}
+
+	/**
+	 * Returns a scheduled executor whose idle threads time out.
+	 *
+	 * @param name thread name prefix
+	 * @param maxThreads maximum number of threads used concurrently
+	 * @return scheduled executor service
+	 */
+	public static ScheduledThreadPoolExecutor newScheduledPool(final String name, final int maxThreads) {
+		final var pool = new ScheduledThreadPoolExecutor(maxThreads, threadFactory(name));
+		pool.setKeepAliveTime(30, TimeUnit.SECONDS);
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Returns a single-threaded scheduled executor.
+	 *
+	 * @param name thread name
+	 * @return scheduled executor service
+	 */
+	public static ScheduledExecutorService newSingleThreadScheduler(final String name) {
+		return Executors.newSingleThreadScheduledExecutor(threadFactory(name));
+	}
+}
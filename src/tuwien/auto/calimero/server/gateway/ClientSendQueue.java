@@ -0,0 +1,266 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+
+import tuwien.auto.calimero.DataUnitBuilder;
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.cemi.CEMI;
+import tuwien.auto.calimero.cemi.CEMILData;
+import tuwien.auto.calimero.knxnetip.KNXnetIPConnection;
+import tuwien.auto.calimero.server.ServerExecutors;
+import tuwien.auto.calimero.server.knxnetip.DefaultServiceContainer.OverflowPolicy;
+
+/**
+ * Bounded outbound queue of a client connection. Frames are sent in order by a pooled sender thread, which waits for
+ * the acknowledgment (and does any resending) of a frame before sending the next one. Callers only enqueue.
+ */
+final class ClientSendQueue {
+	private static final ExecutorService senders = ServerExecutors.newCachedPool("client sender");
+
+	private static final int GroupValueResponse = 0x40;
+	private static final int GroupValueWrite = 0x80;
+
+	private static final Runnable NoAction = () -> {};
+
+	private static final class Entry {
+		CEMI frame;
+		Runnable send;
+		Runnable dropped;
+
+		Entry(final CEMI frame, final Runnable send, final Runnable dropped) {
+			this.frame = frame;
+			this.send = send;
+			this.dropped = dropped;
+		}
+	}
+
+	private final KNXnetIPConnection connection;
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private final Logger logger;
+
+	// guarded by this
+	private final Deque<Entry> queue = new ArrayDeque<>();
+	private boolean draining;
+	// a paused queue accepts frames, but does not send them until resumed
+	private boolean paused;
+	// a frame is currently sent by the sender thread
+	private boolean sending;
+	private boolean closed;
+	private long dropped;
+	private long coalesced;
+
+	ClientSendQueue(final KNXnetIPConnection connection, final int capacity, final OverflowPolicy policy,
+			final Logger logger) {
+		this.connection = connection;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.logger = logger;
+	}
+
+	/**
+	 * Enqueues a frame for sending.
+	 *
+	 * @param frame the frame to send, used for coalescing
+	 * @param send sends the frame, invoked by the sender thread
+	 * @return <code>false</code> if the frame was not queued, <code>true</code> otherwise
+	 */
+	boolean enqueue(final CEMI frame, final Runnable send) {
+		return enqueue(frame, send, NoAction);
+	}
+
+	/**
+	 * Enqueues a frame for sending, and notifies if the frame does not get sent because it is dropped.
+	 *
+	 * @param frame the frame to send, used for coalescing
+	 * @param send sends the frame, invoked by the sender thread
+	 * @param dropped invoked if the frame is not queued, or evicted from the queue before it is sent
+	 * @return <code>false</code> if the frame was not queued, <code>true</code> otherwise
+	 */
+	boolean enqueue(final CEMI frame, final Runnable send, final Runnable dropped) {
+		final List<Entry> evicted = new ArrayList<>();
+		boolean queued = false;
+		boolean disconnect = false;
+		synchronized (this) {
+			if (closed)
+				queued = false;
+			else if (queue.size() < capacity)
+				queued = true;
+			else if (policy == OverflowPolicy.Disconnect) {
+				closed = true;
+				disconnect = true;
+				this.dropped += queue.size() + 1;
+				evicted.addAll(queue);
+				queue.clear();
+			}
+			else if (policy == OverflowPolicy.Coalesce && coalesce(frame, send, dropped))
+				return true;
+			else {
+				evicted.add(queue.poll());
+				this.dropped++;
+				queued = true;
+			}
+			if (queued) {
+				queue.add(new Entry(frame, send, dropped));
+				startDrain();
+			}
+		}
+		evicted.forEach(entry -> entry.dropped.run());
+		if (queued)
+			return true;
+
+		dropped.run();
+		if (disconnect) {
+			logger.warn("outbound queue of {} overflow ({} frames), disconnect client", connection, capacity);
+			senders.execute(connection::close);
+		}
+		return false;
+	}
+
+	/**
+	 * Pauses sending queued frames, frames can still be queued. A frame currently sent by the sender thread is not
+	 * interrupted, use {@link #awaitIdle()} to wait for it.
+	 */
+	synchronized void pause() {
+		paused = true;
+	}
+
+	/**
+	 * Waits until the sender thread is not sending a frame.
+	 *
+	 * @throws InterruptedException on interrupted thread
+	 */
+	synchronized void awaitIdle() throws InterruptedException {
+		while (sending)
+			wait();
+	}
+
+	synchronized void resume() {
+		paused = false;
+		startDrain();
+	}
+
+	void close() {
+		final List<Entry> evicted;
+		synchronized (this) {
+			closed = true;
+			evicted = new ArrayList<>(queue);
+			queue.clear();
+		}
+		evicted.forEach(entry -> entry.dropped.run());
+	}
+
+	synchronized int depth() { return queue.size(); }
+
+	@Override
+	public synchronized String toString() {
+		return String.format("queued %d/%d, dropped %d, coalesced %d", queue.size(), capacity, dropped, coalesced);
+	}
+
+	// replaces a queued group value write/response to the same destination with the newer frame
+	private boolean coalesce(final CEMI frame, final Runnable send, final Runnable dropped) {
+		if (!isGroupValue(frame))
+			return false;
+		final var dst = ((CEMILData) frame).getDestination();
+		for (final Entry entry : queue) {
+			if (isGroupValue(entry.frame) && dst.equals(((CEMILData) entry.frame).getDestination())) {
+				entry.frame = frame;
+				entry.send = send;
+				entry.dropped = dropped;
+				coalesced++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isGroupValue(final CEMI frame) {
+		// only coalesce indications, confirmations are queued for the client as well
+		if (!(frame instanceof CEMILData) || frame.getMessageCode() != CEMILData.MC_LDATA_IND
+				|| !(((CEMILData) frame).getDestination() instanceof GroupAddress))
+			return false;
+		final byte[] tpdu = frame.getPayload();
+		if (tpdu.length < 2)
+			return false;
+		final int service = DataUnitBuilder.getAPDUService(tpdu);
+		return service == GroupValueWrite || service == GroupValueResponse;
+	}
+
+	// guarded by this
+	private void startDrain() {
+		if (draining || paused || closed || queue.isEmpty())
+			return;
+		draining = true;
+		senders.execute(this::drain);
+	}
+
+	private void drain() {
+		while (true) {
+			final Runnable send;
+			synchronized (this) {
+				final Entry entry = paused ? null : queue.poll();
+				if (entry == null) {
+					draining = false;
+					return;
+				}
+				send = entry.send;
+				sending = true;
+			}
+			try {
+				send.run();
+			}
+			catch (final RuntimeException e) {
+				logger.warn("sending on {} failed", connection, e);
+			}
+			finally {
+				synchronized (this) {
+					sending = false;
+					notifyAll();
+				}
+			}
+		}
+	}
+}
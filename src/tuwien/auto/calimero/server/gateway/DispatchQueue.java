@@ -0,0 +1,117 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+
+import org.slf4j.Logger;
+
+import tuwien.auto.calimero.FrameEvent;
+
+/**
+ * Bounded FIFO queue of frame events, processed in order by its own worker thread. The consumer receives events in
+ * batches, together with the number of events still waiting in the queue.
+ */
+final class DispatchQueue {
+	private static final int maxBatch = 64;
+
+	private final String name;
+	private final EventRing queue;
+	private final ObjIntConsumer<List<FrameEvent>> dispatch;
+	private final Logger logger;
+	private final Thread worker;
+
+	private final AtomicLong overflows = new AtomicLong();
+
+	DispatchQueue(final String name, final int capacity, final ObjIntConsumer<List<FrameEvent>> dispatch,
+			final Logger logger) {
+		this.name = name;
+		queue = new EventRing(capacity);
+		this.dispatch = dispatch;
+		this.logger = logger;
+		worker = new Thread(this::run, name);
+		worker.setDaemon(true);
+	}
+
+	void start() { worker.start(); }
+
+	void quit() { worker.interrupt(); }
+
+	// returns false if the event got discarded due to a full queue
+	boolean offer(final FrameEvent e) {
+		if (!queue.offer(e)) {
+			overflows.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+
+	int depth() { return queue.size(); }
+
+	int capacity() { return queue.capacity(); }
+
+	int maxDepth() { return queue.highWaterMark(); }
+
+	long overflows() { return overflows.get(); }
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d/%d (max %d), overflow %d [msgs]", name, depth(), capacity(), maxDepth(),
+				overflows());
+	}
+
+	private void run() {
+		final List<FrameEvent> batch = new ArrayList<>(maxBatch);
+		try {
+			while (true) {
+				queue.take(batch, maxBatch);
+				try {
+					dispatch.accept(batch, queue.size());
+				}
+				catch (final RuntimeException e) {
+					logger.error("{} dispatching frame events", name, e);
+				}
+				batch.clear();
+			}
+		}
+		catch (final InterruptedException e) {}
+	}
+}
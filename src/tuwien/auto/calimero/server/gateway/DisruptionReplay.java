@@ -0,0 +1,198 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+
+import tuwien.auto.calimero.FrameEvent;
+import tuwien.auto.calimero.cemi.CEMI;
+import tuwien.auto.calimero.knxnetip.KNXnetIPConnection;
+import tuwien.auto.calimero.server.ServerExecutors;
+
+/**
+ * Replays the pending events of a disrupted client connection in the background. If the connection has an outbound
+ * queue, the queue is paused during the replay, and frames queued before or during the replay are sent after the
+ * replayed frames. Otherwise, live frames to that connection which arrive during the replay are deferred and sent in
+ * order after the replayed frames. Either way, the client receives all frames in sequence. Sending is paced by the
+ * client, each frame waits for its acknowledgment.
+ */
+final class DisruptionReplay {
+	private static final ExecutorService replayers = ServerExecutors.newCachedPool("disruption replay");
+
+	@FunctionalInterface
+	interface Sender {
+		void send(CEMI frame, long sequence) throws InterruptedException;
+	}
+
+	private static final class Entry {
+		final CEMI frame;
+		final long sequence;
+
+		Entry(final CEMI frame, final long sequence) {
+			this.frame = frame;
+			this.sequence = sequence;
+		}
+	}
+
+	private final KNXnetIPConnection connection;
+	private final ClientSendQueue queue;
+	private final Sender sender;
+	private final Runnable completed;
+	private final Logger logger;
+	private final int replayFrames;
+
+	// guarded by this
+	private final Deque<Entry> frames = new ArrayDeque<>();
+	private boolean done;
+
+	private volatile int sent;
+	private volatile long start;
+	private volatile long end;
+
+	/**
+	 * Creates a replay for the pending events of a connection.
+	 *
+	 * @param connection the client connection to replay to
+	 * @param queue the outbound queue of the connection, paused until the replay completed; <code>null</code> if the
+	 *        connection has no queue
+	 * @param pending the pending events, in order of their sequence numbers starting at <code>firstSequence</code>
+	 * @param firstSequence sequence number of the first pending event
+	 * @param sender sends a frame to the connection, waiting for its acknowledgment
+	 * @param completed invoked after the replay (including any deferred live frames) completed
+	 * @param logger logger
+	 */
+	DisruptionReplay(final KNXnetIPConnection connection, final ClientSendQueue queue,
+			final List<? extends FrameEvent> pending, final long firstSequence, final Sender sender,
+			final Runnable completed, final Logger logger) {
+		this.connection = connection;
+		this.queue = queue;
+		this.sender = sender;
+		this.completed = completed;
+		this.logger = logger;
+		replayFrames = pending.size();
+		long sequence = firstSequence;
+		for (final FrameEvent fe : pending)
+			frames.add(new Entry(fe.getFrame(), sequence++));
+	}
+
+	void start() {
+		start = System.nanoTime();
+		// pause before returning, so that no frame queued from now on gets sent ahead of the replayed frames
+		if (queue != null)
+			queue.pause();
+		replayers.execute(this::run);
+	}
+
+	/**
+	 * Defers sending a live frame until the replay completed.
+	 *
+	 * @param frame the frame
+	 * @param sequence sequence number of the latest recorded event
+	 * @return <code>true</code> if the frame got deferred, <code>false</code> if the replay already completed and the
+	 *         frame has to be sent by the caller
+	 */
+	synchronized boolean defer(final CEMI frame, final long sequence) {
+		if (done)
+			return false;
+		frames.add(new Entry(frame, sequence));
+		return true;
+	}
+
+	int replayFrames() { return replayFrames; }
+
+	int sentFrames() { return sent; }
+
+	Duration duration() { return Duration.ofNanos((end != 0 ? end : System.nanoTime()) - start); }
+
+	double throughput() {
+		final long nanos = duration().toNanos();
+		return nanos == 0 ? 0 : sent * 1e9 / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s replay %d/%d frames, %d ms (%.1f msgs/s)", connection, sent, replayFrames,
+				duration().toMillis(), throughput());
+	}
+
+	private void run() {
+		try {
+			// a frame sent by the queue right before pausing has to complete first
+			if (queue != null)
+				queue.awaitIdle();
+			while (true) {
+				final Entry entry;
+				synchronized (this) {
+					entry = frames.poll();
+					if (entry == null) {
+						done = true;
+						break;
+					}
+				}
+				if (connection.getState() == KNXnetIPConnection.CLOSED)
+					continue;
+				try {
+					sender.send(entry.frame, entry.sequence);
+					sent++;
+				}
+				catch (final RuntimeException e) {
+					logger.warn("replaying frame to {} failed", connection, e);
+				}
+			}
+		}
+		catch (final InterruptedException e) {
+			synchronized (this) {
+				done = true;
+				frames.clear();
+			}
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			end = System.nanoTime();
+			if (queue != null)
+				queue.resume();
+			completed.run();
+		}
+	}
+}
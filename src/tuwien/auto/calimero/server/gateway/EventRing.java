@@ -0,0 +1,166 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import tuwien.auto.calimero.FrameEvent;
+
+/**
+ * Bounded, pre-allocated ring buffer of frame events for any number of producers and a single consumer. Producers
+ * never block, the consumer drains events in batches.
+ */
+final class EventRing {
+	private final int capacity;
+	private final int mask;
+	private final FrameEvent[] events;
+	// slot sequences: sequence == position signals a free slot, position + 1 a published event
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head;
+
+	private volatile Thread waiting;
+	private volatile int highWaterMark;
+
+	/**
+	 * Creates a new ring buffer.
+	 *
+	 * @param minCapacity the minimum capacity, the capacity is rounded up to the next power of 2
+	 */
+	EventRing(final int minCapacity) {
+		if (minCapacity < 1 || minCapacity > 1 << 30)
+			throw new IllegalArgumentException("event ring capacity " + minCapacity + " out of range [1..2^30]");
+		capacity = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+		mask = capacity - 1;
+		events = new FrameEvent[capacity];
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++)
+			sequences.set(i, i);
+	}
+
+	/**
+	 * Adds an event.
+	 *
+	 * @param e frame event
+	 * @return <code>false</code> if the ring buffer is full, <code>true</code> otherwise
+	 */
+	boolean offer(final FrameEvent e) {
+		long pos = tail.get();
+		while (true) {
+			final long diff = sequences.get((int) pos & mask) - pos;
+			if (diff == 0) {
+				if (tail.compareAndSet(pos, pos + 1))
+					break;
+				pos = tail.get();
+			}
+			else if (diff < 0)
+				return false;
+			else
+				pos = tail.get();
+		}
+		final int slot = (int) pos & mask;
+		events[slot] = e;
+		sequences.set(slot, pos + 1);
+
+		final int size = (int) (pos + 1 - head);
+		if (size > highWaterMark)
+			highWaterMark = size;
+		final Thread consumer = waiting;
+		if (consumer != null)
+			LockSupport.unpark(consumer);
+		return true;
+	}
+
+	/**
+	 * Moves available events to the supplied collection, without waiting. Only called by the consumer.
+	 *
+	 * @param c collection to add the events to
+	 * @param maxEvents the maximum number of events to drain
+	 * @return the number of events drained
+	 */
+	int drainTo(final Collection<? super FrameEvent> c, final int maxEvents) {
+		long pos = head;
+		int drained = 0;
+		while (drained < maxEvents) {
+			final int slot = (int) pos & mask;
+			if (sequences.get(slot) != pos + 1)
+				break;
+			c.add(events[slot]);
+			events[slot] = null;
+			sequences.set(slot, pos + capacity);
+			++pos;
+			++drained;
+		}
+		head = pos;
+		return drained;
+	}
+
+	/**
+	 * Moves available events to the supplied collection, waiting for at least one event. Only called by the consumer.
+	 *
+	 * @param c collection to add the events to
+	 * @param maxEvents the maximum number of events to drain
+	 * @return the number of events drained, always &gt; 0
+	 * @throws InterruptedException on interrupted thread
+	 */
+	int take(final Collection<? super FrameEvent> c, final int maxEvents) throws InterruptedException {
+		while (true) {
+			int drained = drainTo(c, maxEvents);
+			if (drained > 0)
+				return drained;
+			waiting = Thread.currentThread();
+			drained = drainTo(c, maxEvents);
+			if (drained == 0)
+				LockSupport.park(this);
+			waiting = null;
+			if (drained > 0)
+				return drained;
+			if (Thread.interrupted())
+				throw new InterruptedException();
+		}
+	}
+
+	int size() { return (int) Math.max(0, Math.min(capacity, tail.get() - head)); }
+
+	int capacity() { return capacity; }
+
+	int highWaterMark() { return highWaterMark; }
+}
@@ -0,0 +1,333 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ObjLongConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, memory-mapped log of recorded frames, split into size-bounded segment files. Each record stores the
+ * event sequence number and the cEMI frame bytes. The log also keeps the sequence number of the last completed event
+ * for each client host. Writes only go to the mapped buffers, the log never forces its content to the storage
+ * device; the operating system writes back modified pages, which survives a server restart but not necessarily a
+ * power loss.
+ */
+final class FrameLog implements AutoCloseable {
+	private static final Logger logger = LoggerFactory.getLogger("calimero.server.gateway.FrameLog");
+
+	static final int MinSegmentSize = 4096;
+
+	// record: length of cEMI data (int), sequence (long), cEMI data; a length of 0 marks the end of a segment
+	private static final int RecordHeader = 4 + 8;
+	private static final String SegmentPrefix = "frames-";
+	private static final String SegmentSuffix = ".log";
+
+	// client positions: host length (short), host (max 38 bytes), completed sequence (long), last activity (long)
+	private static final int PositionSlot = 64;
+	private static final int MaxHostLength = 38;
+	private static final int MaxClients = 256;
+
+	private final Path dir;
+	private final int segmentSize;
+	private final int maxSegments;
+
+	// guarded by this
+	private final Deque<Long> segments = new ArrayDeque<>();
+	private FileChannel channel;
+	private MappedByteBuffer segment;
+
+	private final FileChannel positionsChannel;
+	// guarded by positions
+	private final MappedByteBuffer positions;
+	private final Map<String, Integer> positionSlots = new HashMap<>();
+
+	/**
+	 * Opens or creates a frame log.
+	 *
+	 * @param dir directory of the log files
+	 * @param segmentSize maximum size of a segment file in bytes
+	 * @param maxSegments maximum number of segment files, the oldest segment gets deleted on rotation
+	 * @throws IOException on error creating or mapping the log files
+	 */
+	FrameLog(final Path dir, final int segmentSize, final int maxSegments) throws IOException {
+		if (segmentSize < MinSegmentSize)
+			throw new IllegalArgumentException("frame log segment size " + segmentSize + " < " + MinSegmentSize);
+		if (maxSegments < 1)
+			throw new IllegalArgumentException("frame log segments " + maxSegments + " < 1");
+		this.dir = dir;
+		this.segmentSize = segmentSize;
+		this.maxSegments = maxSegments;
+		Files.createDirectories(dir);
+
+		final List<Long> existing = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SegmentPrefix + "*" + SegmentSuffix)) {
+			for (final Path file : files)
+				segmentIndex(file).ifPresent(existing::add);
+		}
+		Collections.sort(existing);
+		segments.addAll(existing);
+
+		positionsChannel = FileChannel.open(dir.resolve("clients.pos"), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		positions = positionsChannel.map(MapMode.READ_WRITE, 0, PositionSlot * MaxClients);
+		for (int slot = 0; slot < MaxClients; slot++) {
+			final int length = positions.getShort(slot * PositionSlot);
+			if (length <= 0 || length > MaxHostLength)
+				continue;
+			final byte[] host = new byte[length];
+			get(positions, slot * PositionSlot + 2, host);
+			positionSlots.put(new String(host, StandardCharsets.US_ASCII), slot);
+		}
+	}
+
+	/**
+	 * Reads all records of the log in order, and prepares the log for appending records.
+	 *
+	 * @param consumer receives the cEMI data and sequence number of each record
+	 * @throws IOException on error reading the log
+	 */
+	synchronized void restore(final ObjLongConsumer<byte[]> consumer) throws IOException {
+		for (final long index : segments) {
+			try (FileChannel fc = FileChannel.open(segmentFile(index), StandardOpenOption.READ)) {
+				final MappedByteBuffer buf = fc.map(MapMode.READ_ONLY, 0, Math.min(fc.size(), segmentSize));
+				int pos = 0;
+				while (pos + RecordHeader <= buf.limit()) {
+					final int length = buf.getInt(pos);
+					if (length <= 0 || pos + RecordHeader + length > buf.limit())
+						break;
+					final long sequence = buf.getLong(pos + 4);
+					final byte[] data = new byte[length];
+					get(buf, pos + RecordHeader, data);
+					consumer.accept(data, sequence);
+					pos += RecordHeader + length;
+				}
+			}
+		}
+		if (segments.isEmpty())
+			openSegment(0, 0);
+		else
+			openSegment(segments.removeLast(), -1);
+	}
+
+	/**
+	 * Appends a record, rotating to a new segment if the current segment is full.
+	 *
+	 * @param sequence event sequence number
+	 * @param cemi cEMI frame data
+	 */
+	synchronized void append(final long sequence, final byte[] cemi) {
+		if (segment == null)
+			return;
+		try {
+			// keep room for the end marker
+			if (segment.position() + RecordHeader + cemi.length + 4 > segmentSize)
+				openSegment(segments.getLast() + 1, 0);
+			final int pos = segment.position();
+			final int next = pos + RecordHeader + cemi.length;
+			segment.putInt(next, 0);
+			segment.putLong(pos + 4, sequence);
+			put(segment, pos + RecordHeader, cemi);
+			// write length last, a partially written record is not visible
+			segment.putInt(pos, cemi.length);
+			segment.position(next);
+		}
+		catch (final IOException | RuntimeException e) {
+			logger.error("append to frame log {}, disable log", dir, e);
+			closeSegment();
+		}
+	}
+
+	/**
+	 * Stores the sequence number of the last completed event for a client host.
+	 */
+	void completed(final String host, final long sequence, final long timestamp) {
+		final byte[] name = host.getBytes(StandardCharsets.US_ASCII);
+		if (name.length > MaxHostLength)
+			return;
+		synchronized (positions) {
+			Integer slot = positionSlots.get(host);
+			if (slot == null) {
+				slot = freeSlot();
+				positionSlots.values().remove(slot);
+				positionSlots.put(host, slot);
+				final int offset = slot * PositionSlot;
+				positions.putShort(offset, (short) 0);
+				put(positions, offset + 2, name);
+				positions.putShort(offset, (short) name.length);
+			}
+			final int offset = slot * PositionSlot;
+			positions.putLong(offset + 48, sequence);
+			positions.putLong(offset + 56, timestamp);
+		}
+	}
+
+	/**
+	 * Returns the persisted position of a client host.
+	 *
+	 * @return array of completed sequence and timestamp of last activity [ms], or empty if the host is not known
+	 */
+	Optional<long[]> completed(final String host) {
+		synchronized (positions) {
+			final Integer slot = positionSlots.get(host);
+			if (slot == null)
+				return Optional.empty();
+			final int offset = slot * PositionSlot;
+			return Optional.of(new long[] { positions.getLong(offset + 48), positions.getLong(offset + 56) });
+		}
+	}
+
+	void removeCompleted(final String host) {
+		synchronized (positions) {
+			final Integer slot = positionSlots.remove(host);
+			if (slot != null)
+				positions.putShort(slot * PositionSlot, (short) 0);
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (this) {
+			closeSegment();
+		}
+		try {
+			positionsChannel.close();
+		}
+		catch (final IOException e) {}
+	}
+
+	@Override
+	public String toString() {
+		return "frame log " + dir + " (" + segments.size() + " segments of max. " + segmentSize + " bytes)";
+	}
+
+	// guarded by positions; returns a free slot, or the slot of the least recently active host
+	private int freeSlot() {
+		int oldest = 0;
+		long oldestTime = Long.MAX_VALUE;
+		for (int slot = 0; slot < MaxClients; slot++) {
+			final int offset = slot * PositionSlot;
+			if (positions.getShort(offset) == 0)
+				return slot;
+			final long time = positions.getLong(offset + 56);
+			if (time < oldestTime) {
+				oldestTime = time;
+				oldest = slot;
+			}
+		}
+		return oldest;
+	}
+
+	// guarded by this; position -1 appends after the last record in the segment
+	private void openSegment(final long index, final int position) throws IOException {
+		closeSegment();
+		channel = FileChannel.open(segmentFile(index), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		segment = channel.map(MapMode.READ_WRITE, 0, segmentSize);
+		int pos = Math.max(0, position);
+		if (position < 0) {
+			while (pos + RecordHeader <= segmentSize) {
+				final int length = segment.getInt(pos);
+				if (length <= 0 || pos + RecordHeader + length > segmentSize)
+					break;
+				pos += RecordHeader + length;
+			}
+		}
+		segment.putInt(pos, 0);
+		segment.position(pos);
+		segments.addLast(index);
+		while (segments.size() > maxSegments) {
+			final long oldest = segments.removeFirst();
+			Files.deleteIfExists(segmentFile(oldest));
+			logger.debug("rotate frame log {}, delete segment {}", dir, oldest);
+		}
+	}
+
+	// guarded by this
+	private void closeSegment() {
+		segment = null;
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+		}
+		catch (final IOException e) {}
+		channel = null;
+	}
+
+	private static void get(final MappedByteBuffer buf, final int index, final byte[] dst) {
+		buf.duplicate().position(index).get(dst);
+	}
+
+	private static void put(final MappedByteBuffer buf, final int index, final byte[] src) {
+		buf.duplicate().position(index).put(src);
+	}
+
+	private Path segmentFile(final long index) {
+		return dir.resolve(String.format("%s%08d%s", SegmentPrefix, index, SegmentSuffix));
+	}
+
+	private static Optional<Long> segmentIndex(final Path file) {
+		final String name = file.getFileName().toString();
+		try {
+			return Optional.of(Long.parseLong(name.substring(SegmentPrefix.length(),
+					name.length() - SegmentSuffix.length())));
+		}
+		catch (final NumberFormatException e) {
+			return Optional.empty();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.util.Set;
+
+import org.slf4j.Logger;
+
+import tuwien.auto.calimero.DataUnitBuilder;
+import tuwien.auto.calimero.FrameEvent;
+import tuwien.auto.calimero.KNXAddress;
+import tuwien.auto.calimero.cemi.CEMI;
+import tuwien.auto.calimero.cemi.CEMILData;
+
+/**
+ * Trace output of frames dispatched by the gateway, logged at trace level. Frames are only decoded if tracing is
+ * enabled for a frame. Tracing can be restricted to a set of destination addresses, and to a sample of frames.
+ */
+final class FrameTrace {
+	private final Logger logger;
+	private volatile Set<KNXAddress> destinations = Set.of();
+	private volatile int sampling = 1;
+
+	FrameTrace(final Logger logger) { this.logger = logger; }
+
+	/**
+	 * Restricts frame tracing.
+	 *
+	 * @param destinations trace only frames sent to one of these destinations, an empty set traces frames to any
+	 *        destination
+	 * @param sampling trace about every <code>sampling</code>-th frame, <code>1</code> traces every frame
+	 */
+	void filter(final Set<? extends KNXAddress> destinations, final int sampling) {
+		if (sampling < 1)
+			throw new IllegalArgumentException("frame trace sampling " + sampling + " < 1");
+		this.destinations = Set.copyOf(destinations);
+		this.sampling = sampling;
+	}
+
+	/**
+	 * Returns whether tracing is enabled for the supplied frame. The sampling decision is based on the frame
+	 * identity, so all trace points of the same frame object get the same answer.
+	 *
+	 * @param f frame
+	 * @return <code>true</code> if the frame is to be traced, <code>false</code> otherwise
+	 */
+	boolean tracing(final CEMILData f) {
+		if (!logger.isTraceEnabled())
+			return false;
+		final Set<KNXAddress> dst = destinations;
+		if (!dst.isEmpty() && !dst.contains(f.getDestination()))
+			return false;
+		final int n = sampling;
+		return n == 1 || Math.floorMod(System.identityHashCode(f), n) == 0;
+	}
+
+	void received(final String side, final FrameEvent fe) {
+		final CEMI frame = fe.getFrame();
+		if (frame instanceof CEMILData) {
+			final CEMILData f = (CEMILData) frame;
+			if (tracing(f)) {
+				logger.trace("{}{}: {}", side, fe.getSource(), f);
+				logger.trace("{}->{}: {}", f.getSource(), f.getDestination(), decode(f));
+			}
+		}
+		else if (logger.isTraceEnabled() && destinations.isEmpty())
+			logger.trace("{}{}: {}", side, fe.getSource(), frame);
+	}
+
+	/**
+	 * Returns a log argument which decodes the frame APDU on {@link Object#toString()}, i.e., only if it actually
+	 * gets logged.
+	 *
+	 * @param f frame
+	 * @return decoding log argument
+	 */
+	static Object decode(final CEMILData f) {
+		return new Object() {
+			@Override
+			public String toString() { return DataUnitBuilder.decode(f.getPayload(), f.getDestination()); }
+		};
+	}
+
+	@Override
+	public String toString() {
+		return "frame trace " + (destinations.isEmpty() ? "all destinations" : destinations) + ", sampling 1/"
+				+ sampling;
+	}
+}
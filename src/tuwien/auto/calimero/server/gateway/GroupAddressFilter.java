@@ -0,0 +1,80 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+/**
+ * Compiled form of a KNX group address table, using one bit for each of the 65536 possible group addresses.
+ * Instances are immutable, a changed address table requires compiling a new filter.
+ */
+final class GroupAddressFilter {
+	// an empty address table does not restrict any group address
+	static final GroupAddressFilter PassAll = new GroupAddressFilter(null);
+
+	private final long[] bits;
+
+	// table contains the 2 byte group addresses of the address table property (PID.TABLE)
+	static GroupAddressFilter compile(final byte[] table) {
+		if (table.length < 2)
+			return PassAll;
+		final long[] bits = new long[0x10000 / Long.SIZE];
+		for (int i = 0; i + 1 < table.length; i += 2) {
+			final int raw = (table[i] & 0xff) << 8 | (table[i + 1] & 0xff);
+			bits[raw >>> 6] |= 1L << raw;
+		}
+		return new GroupAddressFilter(bits);
+	}
+
+	private GroupAddressFilter(final long[] bits) { this.bits = bits; }
+
+	boolean accept(final int rawGroupAddress) {
+		if (bits == null)
+			return true;
+		final int raw = rawGroupAddress & 0xffff;
+		return (bits[raw >>> 6] & 1L << raw) != 0;
+	}
+
+	@Override
+	public String toString() {
+		if (bits == null)
+			return "pass all";
+		int entries = 0;
+		for (final long l : bits)
+			entries += Long.bitCount(l);
+		return entries + " group addresses";
+	}
+}
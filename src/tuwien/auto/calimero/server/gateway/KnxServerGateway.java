@@ -41,20 +41,19 @@ import static tuwien.auto.calimero.device.ios.InterfaceObject.KNXNETIP_PARAMETER
 import static tuwien.auto.calimero.device.ios.InterfaceObject.ROUTER_OBJECT;
 import static tuwien.auto.calimero.knxnetip.KNXnetIPConnection.BlockingMode.WaitForAck;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.NetworkInterface;
-import java.net.SocketException;
-import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -64,18 +63,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.OptionalLong;
 import java.util.Set;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 
@@ -136,9 +132,12 @@ import tuwien.auto.calimero.mgmt.PropertyAccess;
 import tuwien.auto.calimero.mgmt.PropertyAccess.PID;
 import tuwien.auto.calimero.mgmt.PropertyClient.PropertyKey;
 import tuwien.auto.calimero.serial.usb.UsbConnection;
+import tuwien.auto.calimero.server.LocalAddresses;
+import tuwien.auto.calimero.server.ServerExecutors;
 import tuwien.auto.calimero.server.VirtualLink;
 import tuwien.auto.calimero.server.knxnetip.DataEndpoint;
 import tuwien.auto.calimero.server.knxnetip.DefaultServiceContainer;
+import tuwien.auto.calimero.server.knxnetip.DefaultServiceContainer.OverflowPolicy;
 import tuwien.auto.calimero.server.knxnetip.KNXnetIPServer;
 import tuwien.auto.calimero.server.knxnetip.RoutingServiceContainer;
 import tuwien.auto.calimero.server.knxnetip.ServerListener;
@@ -165,124 +164,107 @@ import tuwien.auto.calimero.server.knxnetip.ShutdownEvent;
  */
 public class KnxServerGateway implements Runnable
 {
-	// KNX IP routing busy flow control
-	// currently only 1 routing service is supported per server
-	private static final Duration randomWaitScale = Duration.ofMillis(50);
-	private static final Duration throttleScale = Duration.ofMillis(100);
-	private volatile Instant currentWaitUntil = Instant.EPOCH;
-	private volatile Instant pauseSendingUntil = Instant.EPOCH;
-	private volatile Instant throttleUntil = Instant.EPOCH;
-
-	private final AtomicInteger routingBusyCounter = new AtomicInteger();
-	private static final ScheduledExecutorService busyCounterDecrementor = Executors.newScheduledThreadPool(0, r -> {
-		final Thread t = new Thread(r, "Calimero routing busy counter");
-		t.setDaemon(true);
-		return t;
-	});
+	// KNX IP routing busy flow control, kept separately for each routing service
+	private static final ScheduledExecutorService routingFlowControlScheduler = ServerExecutors
+			.newSingleThreadScheduler("Calimero routing flow control");
+	private static final int maxRoutingFlowControlQueue = 1000;
+
+	// routing connection of a routing service container, with its own flow control state
+	private static final class RoutingService
+	{
+		final ServiceContainer container;
+		final KNXnetIPRouting connection;
+		final RoutingFlowControl flowControl;
+		// routing indications received since this service last sent a routing busy
+		final AtomicInteger receivedMsgs = new AtomicInteger();
+		// received frames not yet dispatched, for the backlog estimate with shared dispatching
+		final AtomicInteger queued = new AtomicInteger();
+
+		RoutingService(final ServiceContainer container, final KNXnetIPRouting connection,
+			final RoutingFlowControl flowControl)
+		{
+			this.container = container;
+			this.connection = connection;
+			this.flowControl = flowControl;
+		}
+	}
+
+	private final Map<KNXnetIPConnection, RoutingService> routingServices = new ConcurrentHashMap<>();
+
+	private final FrameTrace frameTrace;
 
 	// Connection listener for accepted KNXnet/IP connections
 	private final class ConnectionListener implements RoutingListener
 	{
 		final ServiceContainer sc;
 		final String name;
-
-		private Instant lastRoutingBusy = Instant.EPOCH;
-		// avoid null, assign bogus future
-		private volatile ScheduledFuture<?> decrement = busyCounterDecrementor.schedule(() -> {}, 0, TimeUnit.SECONDS);
+		// only set for routing connections
+		final RoutingService routing;
 
 		ConnectionListener(final ServiceContainer svcContainer, final String connectionName,
 			final IndividualAddress device)
+		{
+			this(svcContainer, connectionName, (RoutingService) null);
+		}
+
+		ConnectionListener(final ServiceContainer svcContainer, final String connectionName,
+			final RoutingService routing)
 		{
 			sc = svcContainer;
 			// same as calling ((KNXnetIPConnection) getSource()).getName()
 			name = connectionName;
+			this.routing = routing;
 		}
 
 		@Override
 		public void frameReceived(final FrameEvent e)
 		{
-			if (!ipEvents.offer(e))
-				incMsgQueueOverflow(true);
+			if (routing != null)
+				routing.queued.incrementAndGet();
+			if (!ipEvents.offer(e)) {
+				if (routing != null)
+					routing.queued.decrementAndGet();
+				incMsgQueueOverflow(objectInstance, true);
+			}
 		}
 
 		@Override
 		public void lostMessage(final LostMessageEvent e)
 		{
+			if (routing != null)
+				routing.flowControl.lostMessages(e.getLostMessages());
 			final String unit = e.getLostMessages() > 1 ? "messages" : "message";
-			logger.warn("KNXnet/IP router {} lost {} {}",  e.getSender(), e.getLostMessages(), unit);
+			logger.warn("KNXnet/IP router {} lost {} {} ({})", e.getSender(), e.getLostMessages(), unit, sc.getName());
 		}
 
 		@Override
 		public void routingBusy(final RoutingBusyEvent e)
 		{
 			// in case we sent the routing busy notification, ignore it
-			if (sentByUs(e.sender()))
+			if (routing == null || sentByUs(e.sender()))
 				return;
 
-			// setup timing for routing busy flow control
-			final Instant now = Instant.now();
-			final Instant waitUntil = now.plus(e.waitTime(), ChronoUnit.MILLIS);
-			LogLevel level = LogLevel.TRACE;
-			boolean update = false;
-			if (waitUntil.isAfter(currentWaitUntil)) {
-				currentWaitUntil = waitUntil;
-				level = LogLevel.WARN;
-				update = true;
-			}
-			LogService.log(logger, level, "device {} sent {}", e.sender(), e.get());
-
-			// increment random wait scaling iff >= 10 ms have passed since the last counted routing busy
-			if (now.isAfter(lastRoutingBusy.plusMillis(10))) {
-				lastRoutingBusy = now;
-				routingBusyCounter.incrementAndGet();
-				update = true;
-			}
-
-			if (!update)
-				return;
-
-			final double rand = Math.random();
-			final long randomWait = Math.round(rand * routingBusyCounter.get() * randomWaitScale.toMillis());
-
-			// invariant on instants: throttle >= pause sending >= current wait
-			pauseSendingUntil = currentWaitUntil.plusMillis(randomWait);
-			final long throttle = routingBusyCounter.get() * throttleScale.toMillis();
-			throttleUntil = pauseSendingUntil.plusMillis(throttle);
-
-			final long continueIn = Duration.between(now, pauseSendingUntil).toMillis();
-			logger.info("set routing busy counter = {}, random wait = {} ms, continue sending in {} ms, throttle {} ms",
-					routingBusyCounter, randomWait, continueIn, throttle);
-
-			final long initialDelay = Duration.between(now, throttleUntil).toMillis() + 5;
-			decrement.cancel(false);
-			decrement = busyCounterDecrementor.scheduleAtFixedRate(this::decrementBusyCounter, initialDelay, 5,
-					TimeUnit.MILLISECONDS);
-		}
-
-		private void decrementBusyCounter()
-		{
-			// decrement iff counter > 0, otherwise cancel decrementing
-			if (routingBusyCounter.accumulateAndGet(0, (v, u) -> v > 0 ? --v : v) == 0)
-				decrement.cancel(false);
+			// setup timing for routing busy flow control, this only affects the routing service of this connection
+			final boolean extended = routing.flowControl.routingBusy(e.waitTime());
+			LogService.log(logger, extended ? LogLevel.WARN : LogLevel.TRACE, "device {} sent {} ({})", e.sender(),
+					e.get(), sc.getName());
 		}
 
 		// this will give a false positive if sending device and server are on same host
 		private boolean sentByUs(final InetSocketAddress sender)
 		{
-			try {
-				final NetworkInterface netif = NetworkInterface.getByName(sc.networkInterface());
-				return Optional.ofNullable(netif).map(ni -> (List<InetAddress>) Collections.list(ni.getInetAddresses()))
-						.orElse(Arrays.asList(InetAddress.getLocalHost())).contains(sender.getAddress());
-			}
-			catch (UnknownHostException | SocketException e) {
-				return false;
-			}
+			return LocalAddresses.of(sc.networkInterface()).orElseGet(() -> LocalAddresses.localHost().stream()
+					.collect(Collectors.toList())).contains(sender.getAddress());
 		}
 
 		@Override
 		public void connectionClosed(final CloseEvent e)
 		{
 			serverConnections.remove(e.getSource());
+			routingIndex.removeClient((KNXnetIPConnection) e.getSource());
+			Optional.ofNullable(clientQueues.remove(e.getSource())).ifPresent(ClientSendQueue::close);
+			Optional.ofNullable(confirmationQueues.remove(e.getSource())).ifPresent(ClientSendQueue::close);
+			routingServices.remove(e.getSource());
 			logger.debug("removed connection {} ({})", name, e.getReason());
 			if (e.getInitiator() == CloseEvent.CLIENT_REQUEST) {
 				final KNXnetIPConnection c = (KNXnetIPConnection) e.getSource();
@@ -336,6 +318,11 @@ public class KnxServerGateway implements Runnable
 		public void connectionEstablished(final ServiceContainer svcContainer, final KNXnetIPConnection connection)
 		{
 			serverConnections.add(connection);
+			if (connection instanceof DataEndpoint)
+				routingIndex.addClient(svcContainer, (DataEndpoint) connection);
+			// create outbound queue now, so that confirmations are queued behind the frames sent to the client
+			if (!(connection instanceof KNXnetIPRouting))
+				clientQueue(svcContainer, connection);
 			logger.debug("established connection {}", connection);
 
 			try {
@@ -373,8 +360,26 @@ public class KnxServerGateway implements Runnable
 			//logger.trace("property id " + pe.getPropertyId() + " changed to ["
 			//		+ DataUnitBuilder.toHex(pe.getNewData(), " ") + "]");
 
+			final InterfaceObject io = pe.getInterfaceObject();
+			if (io.getType() == InterfaceObject.ADDRESSTABLE_OBJECT && pe.getPropertyId() == PID.TABLE) {
+				// recompile from the complete table, the event might only contain a partial update
+				updateGroupAddressFilter(objectInstance(io));
+				return;
+			}
 			if (pe.getNewData().length == 0)
 				return;
+			if (io.getType() == KNXNETIP_PARAMETER_OBJECT) {
+				final int idx = objectInstance(io) - 1;
+				if (idx >= telegramCounters.size())
+					return;
+				final int pid = pe.getPropertyId();
+				final long value = toUnsignedInt(pe.getNewData());
+				// synchronize with property changes done by others (e.g., counter reset on server launch)
+				if (pid == PID.KNXNETIP_DEVICE_STATE && !Thread.holdsLock(deviceStates))
+					deviceStates.set(idx, (int) value);
+				else
+					telegramCounters.get(idx).propertyChanged(pid, value);
+			}
 		}
 
 		@Override
@@ -385,7 +390,11 @@ public class KnxServerGateway implements Runnable
 			if (event == ServiceContainerEvent.ROUTING_SVC_STARTED) {
 				final KNXnetIPConnection conn = sce.getConnection();
 				logger.info(sc.getName() + " started " + conn.getName());
-				conn.addConnectionListener(new ConnectionListener(sc, conn.getName(), null));
+				final var flowControl = new RoutingFlowControl(routingFlowControlScheduler, maxRoutingFlowControlQueue,
+						logger);
+				final var routing = new RoutingService(sc, (KNXnetIPRouting) conn, flowControl);
+				routingServices.put(conn, routing);
+				conn.addConnectionListener(new ConnectionListener(sc, conn.getName(), routing));
 				serverConnections.add(conn);
 			}
 			else if (event == ServiceContainerEvent.ADDED_TO_SERVER) {
@@ -403,6 +412,7 @@ public class KnxServerGateway implements Runnable
 					final SubnetConnector b = i.next();
 					if (b.getServiceContainer() == sc) {
 						i.remove();
+						routingIndex.updateSubnets(connectors);
 						closeLink(b.getSubnetLink());
 						break;
 					}
@@ -467,8 +477,14 @@ public class KnxServerGateway implements Runnable
 			// But this will not work if the sending link differs from the one
 			// stored in this frame event, e.g., when using a buffered link.
 			// Therefore, I store the svcContainer in here for re-association.
-			if (!subnetEvents.offer(new FrameEvent(scid, e.getFrame())))
-				incMsgQueueOverflow(false);
+			final FrameEvent fe = new FrameEvent(scid, e.getFrame());
+			final DispatchQueue queue = toIpQueues.get(scid);
+			if (queue != null) {
+				if (!queue.offer(fe))
+					incMsgQueueOverflow(objectInstance(scid), false);
+			}
+			else if (!subnetEvents.offer(fe))
+				incMsgQueueOverflow(objectInstance, false);
 		}
 
 		@Override
@@ -490,26 +506,54 @@ public class KnxServerGateway implements Runnable
 	// connectors array is not sync'd throughout gateway
 	private final List<SubnetConnector> connectors = new ArrayList<>();
 	private final List<KNXnetIPConnection> serverConnections = Collections.synchronizedList(new ArrayList<>());
+	// individual address routing to subnets and tunneling clients
+	private final RoutingIndex routingIndex = new RoutingIndex();
 
-	private final int maxEventQueueSize = 1000;
-	private final BlockingQueue<FrameEvent> ipEvents = new ArrayBlockingQueue<>(maxEventQueueSize);
-	private final BlockingQueue<FrameEvent> subnetEvents = new ArrayBlockingQueue<>(maxEventQueueSize);
+	// shared event buffers, sized by the largest event queue capacity of all service containers
+	private final EventRing ipEvents;
+	private final EventRing subnetEvents;
+	// maximum number of events a consumer drains from an event buffer at once
+	private static final int maxDrainBatch = 64;
 
 	private static final FrameEvent ResetEvent = new FrameEvent(KnxServerGateway.class, new byte[0]);
 
+	// per-subnet dispatching: ordered queue and worker for each subnet connector and direction, by connector name;
+	// IP => KNX queues are keyed by the destination subnet and only do the (blocking) send to that subnet
+	private volatile boolean dispatchPerSubnet;
+	private final Map<String, DispatchQueue> toKnxQueues = new ConcurrentHashMap<>();
+	private final Map<String, DispatchQueue> toIpQueues = new ConcurrentHashMap<>();
+
 	// support replaying subnet events for disrupted tunneling connections
 	private final Map<ServiceContainer, ReplayBuffer<FrameEvent>> subnetEventBuffers = new HashMap<>();
 	private final Map<KNXnetIPConnection, ServiceContainer> waitingForReplay = new ConcurrentHashMap<>();
+	// active disruption replays, live frames to a connection are deferred until its replay completed
+	private final Map<KNXnetIPConnection, DisruptionReplay> replays = new ConcurrentHashMap<>();
+	private final LongAdder completedReplays = new LongAdder();
+	private final LongAdder replayedFrames = new LongAdder();
+	private volatile DisruptionReplay lastReplay;
 
 	private final Instant startTime;
 
 	private volatile boolean trucking;
 	private volatile boolean inReset;
 
+	// in-memory telegram counters and device state by object instance - 1, published to the IOS lazily
+	private final List<TelegramCounters> telegramCounters = new ArrayList<>();
+	// estimated telegram drain rate of each KNX subnet, list index is object instance - 1
+	private final List<SubnetDrainRate> drainRates = new ArrayList<>();
+	private static final Duration counterPublishInterval = Duration.ofSeconds(1);
+	private static final ScheduledExecutorService counterPublisher = ServerExecutors
+			.newSingleThreadScheduler("Calimero telegram counters");
+	private static final int UnknownDeviceState = -1;
+	private final AtomicIntegerArray deviceStates;
+
 	private static final Duration sendRateHistory = Duration.ofMinutes(10);
 	private final List<SlidingTimeWindowCounter> telegramsToKnx = new ArrayList<>();
 	private final List<SlidingTimeWindowCounter> telegramsFromKnx = new ArrayList<>();
 
+	// compiled group address tables (filters) by object instance, replaced as a whole on address table change
+	private final Map<Integer, GroupAddressFilter> groupAddressFilters = new ConcurrentHashMap<>();
+
 	// we deny clients direct property r/w access to function properties
 	private final Set<PropertyKey> functionProperties = new HashSet<>();
 
@@ -528,67 +572,99 @@ public class KnxServerGateway implements Runnable
 
 
 	private final Thread dispatcher = new Thread() {
-		// threshold for multicasting routing busy msg is 10 incoming routing indications
-		private static final int routingBusyMsgThreshold = 10;
-		private int ipMsgCount;
-
 		@Override
 		public void run()
 		{
+			final List<FrameEvent> batch = new ArrayList<>(maxDrainBatch);
 			try {
 				while (trucking) {
-					final FrameEvent event = ipEvents.take();
-					try {
-						if (!event.systemBroadcast())
-							checkRoutingBusy();
-						onFrameReceived(event, true);
-					}
-					catch (final RuntimeException e) {
-						logger.error("on server-side frame event", e);
-					}
+					ipEvents.take(batch, maxDrainBatch);
+					dispatchServerSideEvents(batch);
+					batch.clear();
 				}
 			}
 			catch (final InterruptedException e) {}
 		};
+	};
 
-		private void checkRoutingBusy()
-		{
-			final Duration observationPeriod = Duration.ofMillis(100);
-			// TODO adjust for KNX subnet capacity
-			final int maxMsgsPerSecond = 200;
+	// threshold for multicasting routing busy msg is 10 incoming routing indications
+	private static final int routingBusyMsgThreshold = 10;
+	// a backlog of queued events which takes longer to drain to the KNX subnet triggers a routing busy
+	private static final Duration observationPeriod = Duration.ofMillis(100);
+	private static final Duration maxRoutingBusyWaitTime = Duration.ofSeconds(1);
 
-			ipMsgCount++;
-			final int msgs = ipEvents.size();
-			final double seconds = ((double) observationPeriod.toMillis()) / 1000;
-			final int msgsPerPeriod = (int) (maxMsgsPerSecond * seconds);
-			if (msgs >= msgsPerPeriod)
-				sendRoutingBusy();
-		}
-
-		private void sendRoutingBusy()
-		{
-			if (ipMsgCount < routingBusyMsgThreshold)
-				return;
-			ipMsgCount = 0;
-			serverConnections.stream().filter(c -> c instanceof KNXnetIPRouting)
-					.forEach(c -> sendRoutingBusy((KNXnetIPRouting) c));
+	private void dispatchServerSideEvents(final List<FrameEvent> batch)
+	{
+		// routing indications of this batch for each routing service
+		final Map<RoutingService, Integer> received = new HashMap<>();
+		for (final FrameEvent event : batch) {
+			final RoutingService routing = routingServices.get(event.getSource());
+			if (routing != null) {
+				routing.queued.decrementAndGet();
+				if (!event.systemBroadcast())
+					received.merge(routing, 1, Integer::sum);
+			}
 		}
-
-		private void sendRoutingBusy(final KNXnetIPRouting connection)
-		{
-			final int deviceState = getPropertyOrDefault(KNXNETIP_PARAMETER_OBJECT, objectInstance,
-					PID.KNXNETIP_DEVICE_STATE, 0);
-			final int waitTime = getPropertyOrDefault(KNXNETIP_PARAMETER_OBJECT, objectInstance,
-					PID.ROUTING_BUSY_WAIT_TIME, 100);
-			final RoutingBusy msg = new RoutingBusy(deviceState, waitTime, 0);
+		received.forEach((routing, msgs) -> {
 			try {
-				connection.send(msg);
+				checkRoutingBusy(routing, msgs);
 			}
-			catch (final KNXConnectionClosedException e) {
-				logger.warn("trying to send routing busy message on closed {}", connection, e);
+			catch (final RuntimeException e) {
+				logger.error("on checking routing busy", e);
+			}
+		});
+		for (final FrameEvent event : batch) {
+			try {
+				onFrameReceived(event, true);
+			}
+			catch (final RuntimeException e) {
+				logger.error("on server-side frame event", e);
 			}
 		}
-	};
+	}
+
+	private void checkRoutingBusy(final RoutingService routing, final int msgs)
+	{
+		routing.receivedMsgs.addAndGet(msgs);
+		final Duration backlog = toKnxBacklog(routing);
+		if (backlog.compareTo(observationPeriod) >= 0)
+			sendRoutingBusy(routing, backlog);
+	}
+
+	// estimated time to drain the frames queued for the KNX subnet of the routing service's container
+	private Duration toKnxBacklog(final RoutingService routing)
+	{
+		final SubnetConnector connector = getSubnetConnector(routing.container.getName());
+		if (connector == null)
+			return Duration.ZERO;
+		final long nanosPerTelegram = drainRates.get(objectInstance(connector) - 1).nanosPerTelegram();
+		final DispatchQueue queue = toKnxQueues.get(connector.getName());
+		// with shared dispatching, count the frames of this routing service still queued for the dispatcher
+		final int queued = queue != null ? queue.depth() : Math.max(0, routing.queued.get());
+		return Duration.ofNanos(queued * nanosPerTelegram);
+	}
+
+	private void sendRoutingBusy(final RoutingService routing, final Duration backlog)
+	{
+		if (routing.receivedMsgs.get() < routingBusyMsgThreshold)
+			return;
+		routing.receivedMsgs.set(0);
+		final int objInst = objectInstance(routing.container.getName());
+		// ask routers to wait at least until our backlog is drained, but no shorter than configured
+		final int configured = getPropertyOrDefault(KNXNETIP_PARAMETER_OBJECT, objInst, PID.ROUTING_BUSY_WAIT_TIME,
+				100);
+		final int waitTime = (int) Math.max(configured, Math.min(backlog.toMillis(), maxRoutingBusyWaitTime.toMillis()));
+		logger.debug("backlog of {} ms to KNX subnet '{}', send routing busy with wait time {} ms", backlog.toMillis(),
+				routing.container.getName(), waitTime);
+		final int deviceState = getPropertyOrDefault(KNXNETIP_PARAMETER_OBJECT, objInst, PID.KNXNETIP_DEVICE_STATE, 0);
+		final RoutingBusy msg = new RoutingBusy(deviceState, waitTime, 0);
+		try {
+			routing.connection.send(msg);
+		}
+		catch (final KNXConnectionClosedException e) {
+			logger.warn("trying to send routing busy message on closed {}", routing.connection, e);
+		}
+	}
 
 	private final List<NetworkLinkListener> deviceListeners = new ArrayList<>();
 	private final KNXNetworkLink deviceLinkProxy = new KNXNetworkLink() {
@@ -673,9 +749,20 @@ public class KnxServerGateway implements Runnable
 		server = s;
 		server.addServerListener(new KNXnetIPServerListener());
 		connectors.addAll(Arrays.asList(subnetConnectors));
+		routingIndex.updateSubnets(connectors);
+		deviceStates = new AtomicIntegerArray(connectors.size());
+		for (int i = 0; i < connectors.size(); i++)
+			deviceStates.set(i, UnknownDeviceState);
 		logger = LogService.getLogger("calimero.server.gateway." + name);
+		frameTrace = new FrameTrace(logger);
 		startTime = Instant.now().truncatedTo(ChronoUnit.SECONDS);
 		dispatcher.setName(name + " subnet dispatcher");
+		// the shared buffers hold the configured event queue capacity of every service container
+		final int configuredCapacity = connectors.stream().map(SubnetConnector::getServiceContainer)
+				.mapToInt(sc -> ((DefaultServiceContainer) sc).eventQueueCapacity()).sum();
+		final int eventQueueCapacity = configuredCapacity > 0 ? configuredCapacity : 1000;
+		ipEvents = new EventRing(eventQueueCapacity);
+		subnetEvents = new EventRing(eventQueueCapacity);
 
 		try {
 			server.device.setDeviceLink(deviceLinkProxy);
@@ -705,9 +792,13 @@ public class KnxServerGateway implements Runnable
 			final Duration timeout = ((DefaultServiceContainer) sc).disruptionBufferTimeout();
 			if (!timeout.isZero()) {
 				final int[] portRange = ((DefaultServiceContainer) sc).disruptionBufferPortRange();
-				logger.info("activate \'{}\' disruption buffer on ports [{}-{}], disruption timeout {} s", sc.getName(),
-						portRange[0], portRange[1], timeout.getSeconds());
-				subnetEventBuffers.put(sc, new ReplayBuffer<>(timeout));
+				final int capacity = ((DefaultServiceContainer) sc).disruptionBufferCapacity();
+				logger.info("activate \'{}\' disruption buffer on ports [{}-{}], disruption timeout {} s, capacity {}",
+						sc.getName(), portRange[0], portRange[1], timeout.getSeconds(), capacity);
+				final ReplayBuffer<FrameEvent> buffer = new ReplayBuffer<>(timeout, capacity);
+				((DefaultServiceContainer) sc).disruptionBufferLog().ifPresent(dir -> restoreFrameLog(buffer,
+						dir, (DefaultServiceContainer) sc));
+				subnetEventBuffers.put(sc, buffer);
 			}
 
 			// this only sets the actual interface's max. apdu if the subnet connection is already up and running
@@ -742,6 +833,8 @@ public class KnxServerGateway implements Runnable
 				logger.warn("failed to set KNX property 'KNXnet/IP routing capabilities'", e);
 			}
 
+			telegramCounters.add(new TelegramCounters(ios, objinst));
+			drainRates.add(new SubnetDrainRate(sc.getMediumSettings().getMedium()));
 			telegramsToKnx.add(
 					new SlidingTimeWindowCounter(connector.getName() + " to KNX", sendRateHistory, ChronoUnit.MINUTES));
 			telegramsFromKnx.add(
@@ -760,33 +853,117 @@ public class KnxServerGateway implements Runnable
 		launchServer();
 		trucking = true;
 		dispatcher.start();
+		if (dispatchPerSubnet)
+			startSubnetDispatchers();
+		final long interval = counterPublishInterval.toMillis();
+		final ScheduledFuture<?> publishCounters = counterPublisher.scheduleWithFixedDelay(
+				this::publishTelegramCounters, interval, interval, TimeUnit.MILLISECONDS);
+		final List<FrameEvent> batch = new ArrayList<>(maxDrainBatch);
 		while (trucking) {
 			try {
 				// although we possibly run in a dedicated thread so to not delay any
 				// other user tasks, be aware that subnet frame dispatching to IP
 				// front-end is done in this thread
-				final FrameEvent event = subnetEvents.take();
-				// If we received a reset.req message in the message handler, the resetEvent marker gets added
-				if (event == ResetEvent) {
-					// Check trucking, since someone might have called quit during server shutdown
-					if (trucking)
-						launchServer();
-				}
-				else {
-					replayPendingSubnetEvents();
-					onFrameReceived(event, false);
-				}
-			}
-			catch (final RuntimeException e) {
-				logger.error("on dispatching KNX message", e);
+				subnetEvents.take(batch, maxDrainBatch);
 			}
 			catch (final InterruptedException e) {
 				quit();
 				Thread.currentThread().interrupt();
+				break;
 			}
+			for (final FrameEvent event : batch) {
+				try {
+					// If we received a reset.req message in the message handler, the resetEvent marker gets added
+					if (event == ResetEvent) {
+						// Check trucking, since someone might have called quit during server shutdown
+						if (trucking)
+							launchServer();
+					}
+					else {
+						// start replays before each event, a connection waiting for its replay must not get it live
+						replayPendingSubnetEvents(null);
+						onFrameReceived(event, false);
+					}
+				}
+				catch (final RuntimeException e) {
+					logger.error("on dispatching KNX message", e);
+				}
+			}
+			batch.clear();
 		}
 
 		dispatcher.interrupt();
+		stopSubnetDispatchers();
+		publishCounters.cancel(false);
+		publishTelegramCounters();
+		subnetEventBuffers.values().forEach(ReplayBuffer::close);
+	}
+
+	/**
+	 * Sets whether frames get dispatched by a dedicated worker for each subnet connector and direction, instead of
+	 * one worker for each direction shared by all subnets. With per-subnet dispatching, frames are sent to a KNX
+	 * subnet only by the worker of that subnet, so a slow or unresponsive KNX subnet does not delay the frame
+	 * forwarding to other subnets; the order of frames sent to or received from a subnet is maintained.
+	 * <p>
+	 * This setting has to be applied before running the gateway.
+	 *
+	 * @param enable <code>true</code> to dispatch per subnet, <code>false</code> to use shared dispatching (default)
+	 */
+	public void dispatchPerSubnet(final boolean enable)
+	{
+		dispatchPerSubnet = enable;
+	}
+
+	/**
+	 * Restricts the trace output of dispatched frames, which is logged if trace level is enabled for the gateway
+	 * logger. Frames are only decoded for trace output if they pass the restrictions, so that a single group address
+	 * can be traced with little overhead for all other frames.
+	 *
+	 * @param destinations trace only frames sent to one of these destination addresses, an empty set traces all
+	 *        destinations
+	 * @param sampling trace about every <code>sampling</code>-th frame, <code>sampling &ge; 1</code>
+	 */
+	public void traceFrames(final Set<? extends KNXAddress> destinations, final int sampling)
+	{
+		frameTrace.filter(destinations, sampling);
+		logger.info("{}", frameTrace);
+	}
+
+	private void startSubnetDispatchers()
+	{
+		for (final SubnetConnector connector : connectors) {
+			final String id = connector.getName();
+			final ServiceContainer sc = connector.getServiceContainer();
+			final int capacity = ((DefaultServiceContainer) sc).eventQueueCapacity();
+			final var toKnx = new DispatchQueue(name + " " + id + " IP => KNX", capacity,
+					(batch, queued) -> sendToSubnet(connector, batch), logger);
+			final var toIp = new DispatchQueue(name + " " + id + " KNX => IP", capacity,
+					(batch, queued) -> dispatchSubnetEvents(sc, batch), logger);
+			toKnx.start();
+			toIp.start();
+			toKnxQueues.put(id, toKnx);
+			toIpQueues.put(id, toIp);
+		}
+		logger.info("dispatch frames using {} subnet workers", toKnxQueues.size() + toIpQueues.size());
+	}
+
+	private void stopSubnetDispatchers()
+	{
+		toKnxQueues.values().forEach(DispatchQueue::quit);
+		toIpQueues.values().forEach(DispatchQueue::quit);
+	}
+
+	private void dispatchSubnetEvents(final ServiceContainer svcContainer, final List<FrameEvent> batch)
+	{
+		for (final FrameEvent event : batch) {
+			try {
+				replayPendingSubnetEvents(svcContainer);
+				onFrameReceived(event, false);
+			}
+			catch (final RuntimeException e) {
+				logger.error("on dispatching KNX message", e);
+			}
+		}
 	}
 
 	/**
@@ -876,10 +1053,22 @@ public class KnxServerGateway implements Runnable
 
 		int objInst = 0;
 
-		info.append(format("used msg buffer IP => KNX: %d/%d (%d %%)%n", ipEvents.size(), maxEventQueueSize,
-				ipEvents.size() * 100 / maxEventQueueSize));
-		info.append(format("used msg buffer KNX => IP: %d/%d (%d %%)%n", subnetEvents.size(), maxEventQueueSize,
-				subnetEvents.size() * 100 / maxEventQueueSize));
+		// buffers shared by all service containers, with the actual (rounded) capacity
+		info.append(format("used msg buffer IP => KNX: %d/%d (%d %%), max %d%n", ipEvents.size(),
+				ipEvents.capacity(), ipEvents.size() * 100 / ipEvents.capacity(), ipEvents.highWaterMark()));
+		info.append(format("used msg buffer KNX => IP: %d/%d (%d %%), max %d%n", subnetEvents.size(),
+				subnetEvents.capacity(), subnetEvents.size() * 100 / subnetEvents.capacity(),
+				subnetEvents.highWaterMark()));
+		info.append(format("L_Data.con: %d sent, %d dropped, %d failed%n", sentConfirmations.sum(),
+				droppedConfirmations.sum(), failedConfirmations.sum()));
+		info.append(format("rate limited requests: %s%n", server.droppedRequests()));
+		info.append(format("UDP datagrams dropped on full send buffer: %d%n", server.droppedDatagrams()));
+		if (!subnetEventBuffers.isEmpty()) {
+			info.append(format("disruption replays: %d completed, %d msgs replayed%n", completedReplays.sum(),
+					replayedFrames.sum()));
+			replays.values().forEach(r -> info.append(format("\tactive: %s%n", r)));
+			Optional.ofNullable(lastReplay).ifPresent(r -> info.append(format("\tlast: %s%n", r)));
+		}
 
 		for (final SubnetConnector c : getSubnetConnectors()) {
 			objInst++;
@@ -890,6 +1079,10 @@ public class KnxServerGateway implements Runnable
 					final RoutingServiceContainer rsc = (RoutingServiceContainer) c.getServiceContainer();
 					info.append(format("\trouting multicast %s netif %s%n",
 							rsc.routingMulticastAddress().getHostAddress(), rsc.networkInterface()));
+					final var routing = routingConnection(rsc);
+					routing.map(routingServices::get).ifPresent(rs -> info.append(format(
+							"\trouting flow control: %s, IP => KNX backlog %d ms%n", rs.flowControl,
+							toKnxBacklog(rs).toMillis())));
 				}
 
 				final InetAddress ip = InetAddress.getByAddress(
@@ -904,20 +1097,29 @@ public class KnxServerGateway implements Runnable
 					link = ((Link<?>) link).target();
 
 				final String subnet = Optional.ofNullable(link).map(Object::toString).orElse("link connecting ...");
-				info.append(format("\tsubnet %s%n", subnet));
+				info.append(format("\tsubnet %s, %s%n", subnet, drainRates.get(objInst - 1)));
 
-				final long toKnx = property(KNXNETIP_PARAMETER_OBJECT, objInst, PID.MSG_TRANSMIT_TO_KNX).orElse(0L);
-				final long overflowKnx = property(KNXNETIP_PARAMETER_OBJECT, objInst, PID.QUEUE_OVERFLOW_TO_KNX).orElse(0L);
+				final var counters = telegramCounters.get(objInst - 1);
+				final long toKnx = counters.transmittedToKnx();
+				final long overflowKnx = counters.overflowToKnx();
 				final int rateToKnx = telegramsToKnx.get(objInst - 1).average();
 				info.append(format("\tIP => KNX: sent %d, overflow %d [msgs], %d [msgs/min]%n", toKnx, overflowKnx, rateToKnx));
-				final long toIP = property(KNXNETIP_PARAMETER_OBJECT, objInst, PID.MSG_TRANSMIT_TO_IP).orElse(0L);
-				final long overflowIP = property(KNXNETIP_PARAMETER_OBJECT, objInst, PID.QUEUE_OVERFLOW_TO_IP).orElse(0L);
+				final long toIP = counters.transmittedToIp();
+				final long overflowIP = counters.overflowToIp();
 				final int rateToIP = telegramsFromKnx.get(objInst - 1).average();
 				info.append(format("\tKNX => IP: sent %d, overflow %d [msgs], %d [msgs/min]%n", toIP, overflowIP, rateToIP));
+				final var toKnxQueue = toKnxQueues.get(c.getName());
+				if (toKnxQueue != null) {
+					final int configured = ((DefaultServiceContainer) c.getServiceContainer()).eventQueueCapacity();
+					info.append(format("\tevent queues: configured capacity %d, actual %d%n", configured,
+							toKnxQueue.capacity()));
+					info.append(format("\t%s%n\t%s%n", toKnxQueue, toIpQueues.get(c.getName())));
+				}
 
 				final var connections = server.dataConnections(c.getServiceContainer());
-				connections.forEach((addr, client) -> info.append(format("\t%s, connected since %s%n",
-						client, client.connectedSince())));
+				connections.forEach((addr, client) -> info.append(format("\t%s, connected since %s%s%n",
+						client, client.connectedSince(),
+						Optional.ofNullable(clientQueues.get(client)).map(q -> ", " + q).orElse(""))));
 			}
 			catch (final Exception e) {
 				logger.error("gathering stat for service container {}", c.getName(), e);
@@ -926,27 +1128,55 @@ public class KnxServerGateway implements Runnable
 		return info.toString();
 	}
 
-	private void replayPendingSubnetEvents()
+	// starts replaying pending events of connections in the supplied service container, or in any container if null
+	private void replayPendingSubnetEvents(final ServiceContainer only)
 	{
+		if (waitingForReplay.isEmpty())
+			return;
 		for (final Entry<KNXnetIPConnection, ServiceContainer> entry : waitingForReplay.entrySet()) {
 			final KNXnetIPConnection c = entry.getKey();
 			final ServiceContainer svcContainer = entry.getValue();
+			if (only != null && only != svcContainer)
+				continue;
 			final ReplayBuffer<FrameEvent> replayBuffer = subnetEventBuffers.get(svcContainer);
-			final Collection<FrameEvent> events = replayBuffer.replay(c);
-			logger.warn("previous connection of {} got disrupted => replay {} pending messages", c, events.size());
-			events.forEach(fe -> {
-				try {
-					send(svcContainer, c, fe.getFrame());
-				}
-				catch (final InterruptedException e) {
-					logger.warn("failed to replay frame event", e);
-				}
-			});
+			final ReplayBuffer.Pending<FrameEvent> pending = replayBuffer.replay(c);
 			waitingForReplay.remove(c);
-			logger.debug("replay completed for connection {}", c);
+			if (pending.events.isEmpty()) {
+				logger.debug("no pending messages for connection {}", c);
+				continue;
+			}
+			logger.warn("previous connection of {} got disrupted => replay {} pending messages", c,
+					pending.events.size());
+			// replay ahead of the frames and confirmations in the outbound queue of the connection
+			final var replay = new DisruptionReplay(c, confirmationQueue(c), pending.events, pending.firstSequence,
+					(frame, sequence) -> send(svcContainer, c, frame, sequence), () -> replayCompleted(c), logger);
+			replays.put(c, replay);
+			replay.start();
 		}
 	}
 
+	private void restoreFrameLog(final ReplayBuffer<FrameEvent> buffer, final Path dir,
+		final DefaultServiceContainer sc)
+	{
+		try {
+			buffer.restore(new FrameLog(dir, sc.disruptionBufferLogSegmentSize(), sc.disruptionBufferLogSegments()));
+		}
+		catch (final IOException | RuntimeException e) {
+			logger.error("'{}' disruption buffer log {} not available, continue without log", sc.getName(), dir, e);
+		}
+	}
+
+	private void replayCompleted(final KNXnetIPConnection c)
+	{
+		final DisruptionReplay replay = replays.remove(c);
+		if (replay == null)
+			return;
+		completedReplays.increment();
+		replayedFrames.add(replay.sentFrames());
+		lastReplay = replay;
+		logger.info("replay completed: {}", replay);
+	}
+
 	private void launchServer()
 	{
 		try {
@@ -973,47 +1203,55 @@ public class KnxServerGateway implements Runnable
 		}
 	}
 
-	private static final ScheduledExecutorService timeServerCyclicTransmitter = Executors.newSingleThreadScheduledExecutor();
+	private static final ScheduledExecutorService timeServerCyclicTransmitter = ServerExecutors
+			.newSingleThreadScheduler("Calimero time server");
 
-	private FrameEvent recordFrameEvent;
+	// outbound queues of client connections, sending frames to a client independent of other clients
+	private final Map<KNXnetIPConnection, ClientSendQueue> clientQueues = new ConcurrentHashMap<>();
+	// outbound L_Data.con queues of client connections without client queue
+	private final Map<KNXnetIPConnection, ClientSendQueue> confirmationQueues = new ConcurrentHashMap<>();
+	private static final int maxConfirmationQueue = 100;
+	private final LongAdder sentConfirmations = new LongAdder();
+	private final LongAdder droppedConfirmations = new LongAdder();
+	private final LongAdder failedConfirmations = new LongAdder();
+
+	// sequence of the last recorded event by service container, completed for a connection after sending it
+	private final Map<ServiceContainer, Long> recordedEvents = new ConcurrentHashMap<>();
 
 	private void recordEvent(final SubnetConnector connector, final FrameEvent fe)
 	{
 		final ReplayBuffer<FrameEvent> buffer = subnetEventBuffers.get(connector.getServiceContainer());
 		if (buffer != null) {
-			buffer.recordEvent(fe);
-			recordFrameEvent = fe;
+			recordedEvents.put(connector.getServiceContainer(), buffer.recordEvent(fe));
 		}
 	}
 
 	private void onFrameReceived(final FrameEvent fe, final boolean fromServerSide)
 	{
-		final String s = fromServerSide ? "server-side " : "KNX subnet ";
 		final CEMI frame = fe.getFrame();
-
-		logger.trace("{}{}: {}", s, fe.getSource(), frame);
+		final String s = fromServerSide ? "server-side " : "KNX subnet ";
+		frameTrace.received(s, fe);
 
 		final int mc = frame.getMessageCode();
 		if (frame instanceof CEMILData) {
 			final CEMILData f = (CEMILData) frame;
 
-			logger.trace("{}->{}: {}", f.getSource(), f.getDestination(),
-					DataUnitBuilder.decode(f.getPayload(), f.getDestination()));
-
 			// we get L-data.ind if client uses routing protocol
 			if (fromServerSide && (mc == CEMILData.MC_LDATA_REQ || mc == CEMILData.MC_LDATA_IND)) {
 				if (mc == CEMILData.MC_LDATA_REQ) {
 					// send confirmation only for .req type
 					sendConfirmationFor((KNXnetIPConnection) fe.getSource(), (CEMILData) CEMIFactory.copy(f));
 
-					// if routing is active, dispatch .req over routing connection
-					final var c = findRoutingConnection().orElse(null);
-					if (c != null) {
+					// if routing is active, dispatch .req over the routing connection serving the source subnet
+					final var c = connectorFor(f.getSource()).map(SubnetConnector::getServiceContainer)
+							.map(this::findRoutingConnection).orElseGet(this::findRoutingConnection).orElse(null);
+					final var routingService = c != null ? routingServices.get(c) : null;
+					if (routingService != null) {
 						logger.debug("dispatch {}->{} using {}", f.getSource(), f.getDestination(), c);
 						try {
 							final var ind = CEMIFactory.create(null, null,
 									(CEMILData) CEMIFactory.create(CEMILData.MC_LDATA_IND, null, f), false, false);
-							send(server.getServiceContainers()[0], c, ind);
+							send(routingService.container, c, ind);
 						}
 						catch (KNXFormatException | InterruptedException | RuntimeException e) {
 							e.printStackTrace();
@@ -1030,22 +1268,20 @@ public class KnxServerGateway implements Runnable
 						final var svcContainer = connector.get().getServiceContainer();
 
 						// check if destination is a client of ours
-						final var dataConnections = server.dataConnections(svcContainer);
-						for (final var dataEndpoint : dataConnections.values()) {
-							if (f.getDestination().equals(dataEndpoint.deviceAddress())) {
-								try {
-									final var ind = CEMIFactory.create(null, null,
-											(CEMILData) CEMIFactory.create(CEMILData.MC_LDATA_IND, null, f), false, false);
-									send(svcContainer, dataEndpoint, ind, true);
-								}
-								catch (final InterruptedException e) {
-									Thread.currentThread().interrupt();
-								}
-								catch (KNXFormatException | RuntimeException e) {
-									e.printStackTrace();
-								}
-								return;
+						final var dataEndpoint = routingIndex.client(svcContainer, dst);
+						if (dataEndpoint != null) {
+							try {
+								final var ind = CEMIFactory.create(null, null,
+										(CEMILData) CEMIFactory.create(CEMILData.MC_LDATA_IND, null, f), false, false);
+								send(svcContainer, dataEndpoint, ind, true);
+							}
+							catch (final InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+							catch (KNXFormatException | RuntimeException e) {
+								e.printStackTrace();
 							}
+							return;
 						}
 
 						// defend our own additional individual addresses when receiving a TL connect.req
@@ -1149,22 +1385,50 @@ public class KnxServerGateway implements Runnable
 			logger.warn("received unknown cEMI msg code 0x" + Integer.toString(mc, 16) + " - ignored");
 	}
 
+	// queues the L_Data.con behind the outbound frames of the client connection, so it is sent in order
 	private void sendConfirmationFor(final KNXnetIPConnection c, final CEMILData f) {
-		CompletableFuture.runAsync(() -> {
+		final CEMI con;
+		try {
+			// TODO check for reasons to send negative L-Data.con
+			final boolean error = false;
+			con = createCon(f.getPayload(), f, error);
+		}
+		catch (final KNXFormatException e) {
+			failedConfirmations.increment();
+			logger.error("creating L_Data.con for {} failed: {}", c, e.getMessage());
+			return;
+		}
+		final Runnable send = () -> {
 			try {
-				// TODO check for reasons to send negative L-Data.con
-				final boolean error = false;
 				logger.trace("send positive cEMI L_Data.con");
-				c.send(createCon(f.getPayload(), f, error), WaitForAck);
+				c.send(con, WaitForAck);
+				sentConfirmations.increment();
+			}
+			catch (final InterruptedException e) {
+				droppedConfirmations.increment();
+				Thread.currentThread().interrupt();
+			}
+			catch (final KNXConnectionClosedException e) {
+				droppedConfirmations.increment();
 			}
 			catch (final Exception e) {
-				throw new CompletionException(e);
+				failedConfirmations.increment();
+				logger.error("sending on {} failed: {} ({}->{} L_Data.con {})", c, e.getMessage(), f.getSource(),
+						f.getDestination(), DataUnitBuilder.decode(f.getPayload(), f.getDestination()));
 			}
-		}).exceptionally(t -> {
-			logger.error("sending on {} failed: {} ({}->{} L_Data.con {})", c, t.getCause().getMessage(),
-					f.getSource(), f.getDestination(), DataUnitBuilder.decode(f.getPayload(), f.getDestination()));
-			return null;
-		});
+		};
+		// a confirmation is dropped if not queued, or if evicted by a newer frame on a full queue
+		confirmationQueue(c).enqueue(con, send, droppedConfirmations::increment);
+	}
+
+	// returns the client queue, or a queue for confirmations only if the container sends frames without queuing
+	private ClientSendQueue confirmationQueue(final KNXnetIPConnection c) {
+		final ClientSendQueue queue = clientQueues.get(c);
+		if (queue != null)
+			return queue;
+		// container sends frames without queuing, only confirmations get queued
+		return confirmationQueues.computeIfAbsent(c,
+				k -> new ClientSendQueue(c, maxConfirmationQueue, OverflowPolicy.DropOldest, logger));
 	}
 
 	private static CEMI createCon(final byte[] data, final CEMILData original, final boolean error)
@@ -1205,7 +1469,8 @@ public class KnxServerGateway implements Runnable
 		if (f.getDestination() instanceof IndividualAddress) {
 			// deal with medium independent default individual address
 			if (f.getDestination().getRawAddress() == 0xffff) {
-				logger.trace("default individual address, dispatch to all active KNX subnets");
+				if (frameTrace.tracing(f))
+					logger.trace("default individual address, dispatch to all active KNX subnets");
 				for (final SubnetConnector subnet : connectors) {
 					if (subnet.getServiceContainer().isActivated() && isNetworkLink(subnet))
 						send(subnet, f);
@@ -1214,13 +1479,14 @@ public class KnxServerGateway implements Runnable
 			}
 			final KNXNetworkLink lnk = findSubnetLink((IndividualAddress) f.getDestination());
 			if (lnk == null) {
-				logger.warn("no subnet configured for destination " + f.getDestination() + " (received "
-						+ DataUnitBuilder.decode(f.getPayload(), f.getDestination())
-						+ " from " + f.getSource() + ")");
+				logger.warn("no subnet configured for destination {} (received {} from {})", f.getDestination(),
+						FrameTrace.decode(f), f.getSource());
 				return;
 			}
-			if (exclude != null && lnk.equals(exclude.getSubnetLink()))
-				logger.trace("dispatching to KNX subnets: exclude subnet " + exclude.getName());
+			if (exclude != null && lnk.equals(exclude.getSubnetLink())) {
+				if (frameTrace.tracing(f))
+					logger.trace("dispatching to KNX subnets: exclude subnet {}", exclude.getName());
+			}
 			else
 				connectorFor((IndividualAddress) f.getDestination()).ifPresent(subnet -> send(subnet, f));
 		}
@@ -1229,8 +1495,8 @@ public class KnxServerGateway implements Runnable
 			for (final SubnetConnector subnet : connectors) {
 				if (subnet.getServiceContainer().isActivated() && !subnet.equals(exclude))
 					dispatchToSubnet(subnet, f, raw, systemBroadcast);
-				else if (subnet.equals(exclude))
-					logger.trace("dispatching to KNX subnets: exclude subnet " + exclude.getName());
+				else if (subnet.equals(exclude) && frameTrace.tracing(f))
+					logger.trace("dispatching to KNX subnets: exclude subnet {}", exclude.getName());
 			}
 		}
 	}
@@ -1290,38 +1556,20 @@ public class KnxServerGateway implements Runnable
 		return true;
 	}
 
-	private static boolean matchesSubnet(final IndividualAddress addr, final IndividualAddress subnetMask)
-	{
-		if (subnetMask == null)
-			return true;
-		if (subnetMask.getArea() == addr.getArea()) {
-			// if we represent an area coupler, line is 0
-			if (subnetMask.getLine() == 0 || subnetMask.getLine() == addr.getLine()) {
-				// address does match the mask
-				return true;
-			}
-		}
-		return false;
-	}
-
 	private KNXNetworkLink findSubnetLink(final IndividualAddress dst)
 	{
-		for (final Iterator<SubnetConnector> i = connectors.iterator(); i.hasNext();) {
-			final SubnetConnector b = i.next();
+		for (final SubnetConnector b : routingIndex.subnets(dst)) {
 			final ServiceContainer c = b.getServiceContainer();
 			if (c.isActivated()) {
-				final IndividualAddress subnet = c.getMediumSettings().getDeviceAddress();
-				if (matchesSubnet(dst, subnet)) {
-					if (!isNetworkLink(b))
-						break;
-					final KNXNetworkLink link = (KNXNetworkLink) b.getSubnetLink();
+				if (!isNetworkLink(b))
+					break;
+				final KNXNetworkLink link = (KNXNetworkLink) b.getSubnetLink();
+				if (logger.isTraceEnabled())
 					logger.trace("dispatch to KNX subnet {} ({} in service container '{}')",
-							subnet, link.getName(), b.getName());
-					// assuming a proper address assignment of area/line coupler
-					// addresses, this has to be the correct knx subnet link
-					return link;
-				}
-				logger.trace("subnet=" + subnet + " dst=" + dst);
+							c.getMediumSettings().getDeviceAddress(), link.getName(), b.getName());
+				// assuming a proper address assignment of area/line coupler
+				// addresses, this has to be the correct knx subnet link
+				return link;
 			}
 		}
 		return null;
@@ -1355,14 +1603,14 @@ public class KnxServerGateway implements Runnable
 						}
 					}
 					// also dispatch via routing as-is
-					c = findRoutingConnection().orElse(null);
+					c = findRoutingConnection(sc).orElse(null);
 					if (c != null) {
 						logger.debug("dispatch {}->{} using {}", f.getSource(), f.getDestination(), c);
 						send(sc, c, f);
 					}
 				}
 				// 3. look for activated client-side routing
-				else if ((c = findRoutingConnection().orElse(null)) != null) {
+				else if ((c = findRoutingConnection(sc).orElse(null)) != null) {
 					logger.debug("dispatch {}->{} using {}", f.getSource(), f.getDestination(), c);
 					send(sc, c, f);
 				}
@@ -1393,7 +1641,7 @@ public class KnxServerGateway implements Runnable
 						return;
 					}
 
-					final KNXnetIPConnection routing = findRoutingConnection().orElse(null);
+					final KNXnetIPConnection routing = findRoutingConnection(sc).orElse(null);
 					if (routing != null && isSubnetBroadcast(objinst, f)) {
 						logger.info("forward as IP system broadcast {}", f);
 						final CEMILData bcast;
@@ -1446,15 +1694,7 @@ public class KnxServerGateway implements Runnable
 	}
 
 	private KNXnetIPConnection findConnection(final IndividualAddress dst) {
-		for (final ServiceContainer sc : server.getServiceContainers()) {
-			if (matchesSubnet(dst, sc.getMediumSettings().getDeviceAddress())) {
-				final var connections = server.dataConnections(sc);
-				for (final var connection : connections.values())
-					if (dst.equals(connection.deviceAddress()))
-						return connection;
-			}
-		}
-		return null;
+		return routingIndex.client(dst);
 	}
 
 	private static final int SystemNetworkParamRead = 0b0111001000;
@@ -1532,28 +1772,16 @@ public class KnxServerGateway implements Runnable
 		}
 	}
 
-	// check whether we have to slow down or pause sending for routing flow control
-	private void applyRoutingFlowControl(final KNXnetIPConnection c) throws InterruptedException
+	// prefers the routing connection of the service container, falls back to any routing connection
+	private Optional<KNXnetIPConnection> findRoutingConnection(final ServiceContainer sc)
 	{
-		if (!(c instanceof KNXnetIPRouting) || routingBusyCounter.get() == 0)
-			return;
+		return routingConnection(sc).or(this::findRoutingConnection);
+	}
 
-		// we have to loop because a new arrival of routing busy might update timings
-		while (true) {
-			final Instant now = Instant.now();
-			final long sleep = Duration.between(now, pauseSendingUntil).toMillis();
-			if (sleep > 0) {
-				logger.info("applying routing flow control for {}, wait {} ms ...",
-						c.getRemoteAddress().getAddress().getHostAddress(), sleep);
-				Thread.sleep(sleep);
-			}
-			else if (now.isBefore(throttleUntil)) {
-				Thread.sleep(5);
-				break;
-			}
-			else
-				break;
-		}
+	private Optional<KNXnetIPConnection> routingConnection(final ServiceContainer sc)
+	{
+		return routingServices.entrySet().stream().filter(e -> e.getValue().container == sc).map(Map.Entry::getKey)
+				.findAny();
 	}
 
 	private void send(final ServiceContainer svcContainer, final KNXnetIPConnection c, final CEMI f)
@@ -1563,8 +1791,56 @@ public class KnxServerGateway implements Runnable
 
 	private void send(final ServiceContainer svcContainer, final KNXnetIPConnection c, final CEMI f,
 		final boolean applyRoutingFlowControl) throws InterruptedException {
-		if (applyRoutingFlowControl)
-			applyRoutingFlowControl(c);
+		final long recorded = recordedEvents.getOrDefault(svcContainer, ReplayBuffer.NoEvent);
+		if (c instanceof KNXnetIPRouting) {
+			final RoutingService routingService = routingServices.get(c);
+			if (applyRoutingFlowControl && routingService != null)
+				routingService.flowControl.send(() -> {
+					try {
+						send(svcContainer, c, f, recorded);
+					}
+					catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			else
+				send(svcContainer, c, f, recorded);
+			return;
+		}
+		final ClientSendQueue queue = clientQueue(svcContainer, c);
+		if (queue == null) {
+			final DisruptionReplay replay = replays.get(c);
+			if (replay == null || !replay.defer(f, recorded))
+				send(svcContainer, c, f, recorded);
+			return;
+		}
+		// during a replay, the queue is paused and sends its frames after the replayed frames
+		final boolean queued = queue.enqueue(f, () -> {
+			try {
+				send(svcContainer, c, f, recorded);
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		if (!queued)
+			logger.debug("outbound queue of {} closed, discard {}", c, f);
+	}
+
+	// returns the outbound queue for a client connection, or null if the container sends without queuing
+	private ClientSendQueue clientQueue(final ServiceContainer svcContainer, final KNXnetIPConnection c) {
+		if (!(svcContainer instanceof DefaultServiceContainer))
+			return null;
+		final DefaultServiceContainer sc = (DefaultServiceContainer) svcContainer;
+		final int capacity = sc.clientQueueCapacity();
+		if (capacity == 0)
+			return null;
+		return clientQueues.computeIfAbsent(c,
+				k -> new ClientSendQueue(c, capacity, sc.clientQueueOverflowPolicy(), logger));
+	}
+
+	private void send(final ServiceContainer svcContainer, final KNXnetIPConnection c, final CEMI f,
+		final long recorded) throws InterruptedException {
 		final int oi = objectInstance(svcContainer.getName());
 		try {
 			c.send(f, WaitForAck);
@@ -1573,7 +1849,7 @@ public class KnxServerGateway implements Runnable
 
 			final ReplayBuffer<FrameEvent> buffer = subnetEventBuffers.get(svcContainer);
 			if (buffer != null)
-				buffer.completeEvent(c, recordFrameEvent);
+				buffer.completeEvent(c, recorded);
 		}
 		catch (final KNXTimeoutException e) {
 			logger.error("sending on {} failed: {} ({})", c, e.getMessage(), f.toString());
@@ -1585,6 +1861,29 @@ public class KnxServerGateway implements Runnable
 	}
 
 	private void send(final SubnetConnector subnet, final CEMILData f)
+	{
+		final DispatchQueue queue = toKnxQueues.get(subnet.getName());
+		if (queue == null)
+			sendToSubnet(subnet, f);
+		else if (!queue.offer(new FrameEvent(subnet, f)))
+			incMsgQueueOverflow(objectInstance(subnet), true);
+	}
+
+	// invoked by the IP => KNX worker of the subnet
+	private void sendToSubnet(final SubnetConnector subnet, final List<FrameEvent> batch)
+	{
+		for (final FrameEvent event : batch) {
+			try {
+				sendToSubnet(subnet, (CEMILData) event.getFrame());
+			}
+			catch (final RuntimeException e) {
+				logger.error("on sending to KNX subnet {}", subnet.getName(), e);
+			}
+		}
+	}
+
+	// blocks until the subnet link confirmed the frame or timed out
+	private void sendToSubnet(final SubnetConnector subnet, final CEMILData f)
 	{
 		final KNXNetworkLink link = (KNXNetworkLink) subnet.getSubnetLink();
 		final int oi = objectInstance(subnet);
@@ -1617,7 +1916,10 @@ public class KnxServerGateway implements Runnable
 			if (subnetLink instanceof KNXNetworkLinkTpuart && ldata instanceof CEMILDataEx)
 				((CEMILDataEx) ldata).additionalInfo().clear();
 
+			final long start = System.nanoTime();
 			link.send(ldata, true);
+			// standard frame length: ctrl, source, destination, npci/length, tpdu, checksum
+			drainRates.get(oi - 1).sent(7 + ldata.getPayload().length, System.nanoTime() - start);
 			setNetworkState(oi, true, false);
 			incMsgTransmitted(oi, true);
 		}
@@ -1630,16 +1932,6 @@ public class KnxServerGateway implements Runnable
 		}
 	}
 
-	private OptionalLong property(final int objectType, final int objectInstance, final int propertyId) {
-		final InterfaceObjectServer ios = server.getInterfaceObjectServer();
-		try {
-			return OptionalLong.of(toUnsignedInt(ios.getProperty(objectType, objectInstance, propertyId, 1, 1)));
-		}
-		catch (final KnxPropertyException e) {
-			return OptionalLong.empty();
-		}
-	}
-
 	private int getPropertyOrDefault(final int objectType, final int objectInstance, final int propertyId,
 		final int defaultValue)
 	{
@@ -1656,10 +1948,29 @@ public class KnxServerGateway implements Runnable
 		server.getInterfaceObjectServer().setProperty(objectType, objectInstance, propertyId, 1, 1, data);
 	}
 
-	// implements KNX group address filtering using IOS addresstable object
-	private boolean inGroupAddressTable(final GroupAddress addr, final int objectInstance)
+	// implements KNX group address filtering using the compiled IOS addresstable object
+	boolean inGroupAddressTable(final GroupAddress addr, final int objectInstance)
+	{
+		GroupAddressFilter filter = groupAddressFilters.get(objectInstance);
+		if (filter == null) {
+			// don't overwrite a filter compiled in the meantime by a table update
+			final GroupAddressFilter compiled = compileGroupAddressFilter(objectInstance);
+			filter = Optional.ofNullable(groupAddressFilters.putIfAbsent(objectInstance, compiled)).orElse(compiled);
+		}
+		return filter.accept(addr.getRawAddress());
+	}
+
+	private void updateGroupAddressFilter(final int objectInstance)
+	{
+		final GroupAddressFilter filter = compileGroupAddressFilter(objectInstance);
+		groupAddressFilters.put(objectInstance, filter);
+		logger.debug("object instance {} group address filter: {}", objectInstance, filter);
+	}
+
+	private GroupAddressFilter compileGroupAddressFilter(final int objectInstance)
 	{
 		final InterfaceObjectServer ios = server.getInterfaceObjectServer();
+		GroupAddressFilter filter;
 		try {
 			final byte[] data = ios.getProperty(InterfaceObject.ADDRESSTABLE_OBJECT,
 					objectInstance, PropertyAccess.PID.TABLE, 0, 1);
@@ -1667,21 +1978,16 @@ public class KnxServerGateway implements Runnable
 
 			// not sure if this is some common behavior: if property exists with zero length, allow every address
 			if (elems == 0)
-				return true;
-
-			final byte[] addrTable = ios.getProperty(InterfaceObject.ADDRESSTABLE_OBJECT,
-					objectInstance, PropertyAccess.PID.TABLE, 1, elems);
-			final byte hi = (byte) (addr.getRawAddress() >> 8);
-			final byte lo = (byte) addr.getRawAddress();
-			for (int i = 0; i < addrTable.length; i += 2)
-				if (hi == addrTable[i] && lo == addrTable[i + 1])
-					return true;
-			return false;
+				filter = GroupAddressFilter.PassAll;
+			else
+				filter = GroupAddressFilter.compile(ios.getProperty(InterfaceObject.ADDRESSTABLE_OBJECT,
+						objectInstance, PropertyAccess.PID.TABLE, 1, elems));
 		}
 		catch (final KnxPropertyException e) {
 			// when in doubt, pass the message on...
-			return true;
+			filter = GroupAddressFilter.PassAll;
 		}
+		return filter;
 	}
 
 	private List<IndividualAddress> additionalAddresses(final int objectInstance) {
@@ -1754,6 +2060,9 @@ public class KnxServerGateway implements Runnable
 				final InterfaceObjectServer ios = server.getInterfaceObjectServer();
 				try {
 					if (read) {
+						if (f.getObjectType() == KNXNETIP_PARAMETER_OBJECT && f.getObjectInstance() > 0
+								&& f.getObjectInstance() <= telegramCounters.size())
+							publishTelegramCounters(f.getObjectInstance());
 						data = ios.getProperty(f.getObjectType(), f.getObjectInstance(), f.getPID(), f.getStartIndex(), elems);
 						// play it safe and set error code if property data was not found
 						if (data == null) {
@@ -1797,12 +2106,8 @@ public class KnxServerGateway implements Runnable
 	}
 
 	private Optional<SubnetConnector> connectorFor(final IndividualAddress dst) {
-		for (final SubnetConnector connector : connectors) {
-			final ServiceContainer c = connector.getServiceContainer();
-			if (matchesSubnet(dst, c.getMediumSettings().getDeviceAddress()))
-				return Optional.of(connector);
-		}
-		return Optional.empty();
+		final SubnetConnector[] subnets = routingIndex.subnets(dst);
+		return subnets.length > 0 ? Optional.of(subnets[0]) : Optional.empty();
 	}
 
 	private int objectInstance(final SubnetConnector connector) {
@@ -1816,6 +2121,16 @@ public class KnxServerGateway implements Runnable
 		throw new KnxRuntimeException("no subnet connector with ID '" + id + "'");
 	}
 
+	// object instance of an interface object with respect to its object type
+	private int objectInstance(final InterfaceObject io) {
+		final InterfaceObject[] objects = server.getInterfaceObjectServer().getInterfaceObjects();
+		int instance = 0;
+		for (int i = 0; i <= io.getIndex() && i < objects.length; i++)
+			if (objects[i].getType() == io.getType())
+				instance++;
+		return instance;
+	}
+
 	// TODO support > 1 service containers with usb
 	private LocalDeviceManagementUsb ldmAdapter;
 	private DeviceDescriptor dd0;
@@ -1985,17 +2300,7 @@ public class KnxServerGateway implements Runnable
 
 	private void incMsgTransmitted(final int objinst, final boolean toKnxNetwork)
 	{
-		final int pid = toKnxNetwork ? PID.MSG_TRANSMIT_TO_KNX : PID.MSG_TRANSMIT_TO_IP;
-		// must be 4 byte unsigned
-		// getPropertyOrDefault casts to int, but we just increment and store so it doesn't matter
-		long transmit = getPropertyOrDefault(KNXNETIP_PARAMETER_OBJECT, objinst, pid, 0);
-		try {
-			server.getInterfaceObjectServer().setProperty(KNXNETIP_PARAMETER_OBJECT, objinst, pid, 1, 1,
-					bytesFromInt(++transmit));
-		}
-		catch (final KnxPropertyException e) {
-			logger.error("on increasing message transmit counter", e);
-		}
+		telegramCounters.get(objinst - 1).transmitted(toKnxNetwork);
 		incSendRateCounter(objinst, toKnxNetwork);
 	}
 
@@ -2006,26 +2311,37 @@ public class KnxServerGateway implements Runnable
 	}
 
 	// support queue overflow statistics
-	private void incMsgQueueOverflow(final boolean toKnxNetwork)
+	private void incMsgQueueOverflow(final int objectInstance, final boolean toKnxNetwork)
 	{
-		final int pid = toKnxNetwork ? PID.QUEUE_OVERFLOW_TO_KNX : PID.QUEUE_OVERFLOW_TO_IP;
-		int overflow = getPropertyOrDefault(KNXNETIP_PARAMETER_OBJECT, objectInstance, pid, 0);
-		if (overflow == 0xffff) {
-			logger.warn("queue overflow counter reached maximum of 0xffff, not incremented");
-			return;
-		}
-		++overflow;
+		final var counters = telegramCounters.get(objectInstance - 1);
+		counters.overflow(toKnxNetwork);
+		final long overflow = toKnxNetwork ? counters.overflowToKnx() : counters.overflowToIp();
 		final var direction = toKnxNetwork ? "IP => KNX" : "KNX => IP";
-		logger.warn("queue overflow {}, counter incremented to {}", direction, overflow);
+		if (overflow == 0xffff)
+			logger.warn("queue overflow {} (object instance {}), counter reached maximum of 0xffff", direction,
+					objectInstance);
+		else
+			logger.warn("queue overflow {} (object instance {}), counter incremented to {}", direction,
+					objectInstance, overflow);
+	}
+
+	// publishes changed telegram counters to the KNXnet/IP parameter object
+	private void publishTelegramCounters(final int objectInstance)
+	{
 		try {
-			server.getInterfaceObjectServer().setProperty(KNXNETIP_PARAMETER_OBJECT, objectInstance, pid, 1, 1,
-					bytesFromWord(overflow));
+			telegramCounters.get(objectInstance - 1).publish();
 		}
 		catch (final KnxPropertyException e) {
-			logger.error("on increasing queue overflow counter", e);
+			logger.error("on publishing telegram counters of object instance {}", objectInstance, e);
 		}
 	}
 
+	private void publishTelegramCounters()
+	{
+		for (int i = 0; i < telegramCounters.size(); i++)
+			publishTelegramCounters(i + 1);
+	}
+
 	// returns null to indicate a discarded frame
 	private CEMILData adjustHopCount(final CEMILData msg)
 	{
@@ -2046,22 +2362,36 @@ public class KnxServerGateway implements Runnable
 	}
 
 	// if we can not transmit for 5 seconds, we assume some network fault
+	// the device state is only written to the IOS if it changes
 	private void setNetworkState(final int objectInstance, final boolean knxNetwork, final boolean faulty)
 	{
+		final int idx = objectInstance - 1;
 		// 1 byte bit field
-		int state = getPropertyOrDefault(KNXNETIP_PARAMETER_OBJECT, objectInstance, PID.KNXNETIP_DEVICE_STATE, 0);
+		if (deviceStates.get(idx) == UnknownDeviceState)
+			deviceStates.compareAndSet(idx, UnknownDeviceState,
+					getPropertyOrDefault(KNXNETIP_PARAMETER_OBJECT, objectInstance, PID.KNXNETIP_DEVICE_STATE, 0));
 		// set the corresponding bit in device state field
 		// bit 0: KNX fault, bit 1: IP fault, others reserved
-		if (knxNetwork)
-			state = (faulty ? state | 1 : state & 0xfe);
-		else
-			state = (faulty ? state | 2 : state & 0xfd);
-		try {
-			setProperty(KNXNETIP_PARAMETER_OBJECT, objectInstance, PID.KNXNETIP_DEVICE_STATE, (byte) state);
-			setProperty(ROUTER_OBJECT, objectInstance, PID.MEDIUM_STATUS, (byte) (faulty ? 1 : 0));
-		}
-		catch (final KnxPropertyException e) {
-			logger.error("on modifying network fault in device state", e);
+		final int mask = knxNetwork ? 1 : 2;
+		int prev;
+		int state;
+		do {
+			prev = deviceStates.get(idx);
+			state = faulty ? prev | mask : prev & ~mask & 0xff;
+		}
+		while (!deviceStates.compareAndSet(idx, prev, state));
+		if (state == prev)
+			return;
+
+		synchronized (deviceStates) {
+			try {
+				setProperty(KNXNETIP_PARAMETER_OBJECT, objectInstance, PID.KNXNETIP_DEVICE_STATE,
+						(byte) deviceStates.get(idx));
+				setProperty(ROUTER_OBJECT, objectInstance, PID.MEDIUM_STATUS, (byte) (faulty ? 1 : 0));
+			}
+			catch (final KnxPropertyException e) {
+				logger.error("on modifying network fault in device state", e);
+			}
 		}
 	}
 
@@ -2122,14 +2452,4 @@ public class KnxServerGateway implements Runnable
 			return (long) (data[0] & 0xff) << 8 | (data[1] & 0xff);
 		return (long) (data[0] & 0xff) << 24 | (data[1] & 0xff) << 16 | (data[2] & 0xff) << 8 | (data[3] & 0xff);
 	}
-
-	private static byte[] bytesFromInt(final long value)
-	{
-		return new byte[] { (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value };
-	}
-
-	private static byte[] bytesFromWord(final int word)
-	{
-		return new byte[] { (byte) (word >> 8), (byte) word };
-	}
 }
@@ -36,48 +36,162 @@
 
 package tuwien.auto.calimero.server.gateway;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.OptionalLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import tuwien.auto.calimero.FrameEvent;
+import tuwien.auto.calimero.KNXFormatException;
+import tuwien.auto.calimero.cemi.CEMIFactory;
 import tuwien.auto.calimero.knxnetip.KNXnetIPConnection;
 
+/**
+ * Disruption buffer of recorded KNX subnet events. Events are kept in a fixed-capacity ring, and are addressed by a
+ * sequence number assigned on recording; looking up an event or the pending events of a connection takes constant
+ * time per event.
+ */
 class ReplayBuffer<T extends FrameEvent>
 {
 	private static final Logger logger = LoggerFactory.getLogger("calimero.server.gateway.ReplayBuffer");
 
-	private final Map<KNXnetIPConnection, Object[]> connectionToKey = Collections.synchronizedMap(new HashMap<>());
-	private final Map<KNXnetIPConnection, Long> completedEvent = Collections.synchronizedMap(new HashMap<>());
+	/** Sequence number indicating that no event was recorded or completed. */
+	static final long NoEvent = -1;
 
-	private static final long maxBufferSize = 350;
-	private final List<T> buffer = new ArrayList<>();
+	private static final class ConnectionState
+	{
+		final String host;
+		final int port;
+		// sequence of the latest recorded event when the connection was added
+		final long added;
+		volatile long lastActivity; // [ms]
+		volatile long completed = NoEvent;
+
+		ConnectionState(final KNXnetIPConnection c, final long added)
+		{
+			final InetSocketAddress remote = c.getRemoteAddress();
+			host = remote.getAddress().getHostAddress();
+			port = remote.getPort();
+			this.added = added;
+			lastActivity = System.currentTimeMillis();
+		}
+
+		// returns 0: no match, 1: host matches, 2: host and port match
+		int compare(final ConnectionState to)
+		{
+			if (host.equals(to.host))
+				return port == to.port ? 2 : 1;
+			return 0;
+		}
+
+		long lastSeen() { return completed == NoEvent ? added : completed; }
+
+		@Override
+		public String toString() { return host + ":" + port; }
+	}
+
+	/** Pending events of a connection, in order of their sequence numbers. */
+	static final class Pending<T>
+	{
+		final long firstSequence;
+		final List<T> events;
+
+		Pending(final long firstSequence, final List<T> events)
+		{
+			this.firstSequence = firstSequence;
+			this.events = events;
+		}
+	}
+
+	private final Map<KNXnetIPConnection, ConnectionState> connections = Collections.synchronizedMap(new HashMap<>());
+
+	// guarded by this
+	private final Object[] ring;
+	private long firstSequence;
+	private long nextSequence;
+	// optional persistent log of recorded events and client positions
+	private volatile FrameLog log;
 
 	private final long keepDisruptedConnection; // [ms]
 
 	ReplayBuffer(final Duration expireDisruptedConnectionAfter)
 	{
+		this(expireDisruptedConnectionAfter, 350);
+	}
+
+	ReplayBuffer(final Duration expireDisruptedConnectionAfter, final int capacity)
+	{
+		if (capacity <= 0)
+			throw new IllegalArgumentException("replay buffer capacity " + capacity + " <= 0");
 		keepDisruptedConnection = expireDisruptedConnectionAfter.toMillis();
+		ring = new Object[capacity];
+	}
+
+	/**
+	 * Restores the recorded events of a persistent frame log, and appends subsequently recorded events to that log.
+	 *
+	 * @param frameLog frame log
+	 * @throws IOException on error reading the frame log
+	 */
+	synchronized void restore(final FrameLog frameLog) throws IOException
+	{
+		final int[] restored = new int[1];
+		frameLog.restore((data, sequence) -> {
+			try {
+				final FrameEvent fe = new FrameEvent(this, CEMIFactory.create(data, 0, data.length));
+				if (sequence != nextSequence || restored[0] == 0)
+					firstSequence = sequence;
+				ring[slot(sequence)] = fe;
+				nextSequence = sequence + 1;
+				restored[0]++;
+			}
+			catch (final KNXFormatException e) {
+				logger.warn("skip invalid frame in log (event {})", sequence, e);
+				firstSequence = sequence + 1;
+				nextSequence = sequence + 1;
+			}
+		});
+		log = frameLog;
+		logger.info("restored {} events from {}, continue with event {}", Math.min(restored[0], ring.length),
+				frameLog, nextSequence);
 	}
 
 	public boolean isDisrupted(final KNXnetIPConnection c)
 	{
-		return !disruptedCandidates(c).isEmpty();
+		return !disruptedCandidates(c).isEmpty() || persistedPosition(c).isPresent();
+	}
+
+	// returns the persisted position of a connection's host iff no other connection of that host is known, e.g.,
+	// after a server restart
+	private OptionalLong persistedPosition(final KNXnetIPConnection c)
+	{
+		final FrameLog frameLog = log;
+		if (frameLog == null)
+			return OptionalLong.empty();
+		final String host = c.getRemoteAddress().getAddress().getHostAddress();
+		synchronized (connections) {
+			for (final Map.Entry<KNXnetIPConnection, ConnectionState> e : connections.entrySet())
+				if (e.getKey() != c && e.getValue().host.equals(host))
+					return OptionalLong.empty();
+		}
+		return frameLog.completed(host).filter(p -> p[1] + keepDisruptedConnection >= System.currentTimeMillis())
+				.filter(p -> p[0] != NoEvent && p[0] < latestSequence()).map(p -> OptionalLong.of(p[0]))
+				.orElse(OptionalLong.empty());
 	}
 
 	private List<KNXnetIPConnection> disruptedCandidates(final KNXnetIPConnection c)
 	{
-		final Object[] key = keyFor(c);
-		synchronized (connectionToKey) {
+		final ConnectionState added = connections.get(c);
+		final ConnectionState key = added != null ? added : new ConnectionState(c, latestSequence());
+		synchronized (connections) {
 			final List<KNXnetIPConnection> exactMatch = find(c, key, 2);
 			if (!exactMatch.isEmpty()) {
 				logger.info("found exact match for {} in disrupted connections: {}", key, exactMatch);
@@ -107,26 +221,26 @@ class ReplayBuffer<T extends FrameEvent>
 
 	private boolean isMissingEvents(final KNXnetIPConnection c)
 	{
-		final Long lastTx = completedEvent.get(c);
-		if (lastTx == null)
+		final ConnectionState state = connections.get(c);
+		if (state == null || state.completed == NoEvent)
 			return false;
-		return lastTx < latestEventCount();
+		return state.completed < latestSequence();
 	}
 
-	// only call iff synchronized on connectionToKey
-	private List<KNXnetIPConnection> find(final KNXnetIPConnection c, final Object[] key, final int compare)
+	// only call iff synchronized on connections
+	private List<KNXnetIPConnection> find(final KNXnetIPConnection c, final ConnectionState key, final int compare)
 	{
 		final List<KNXnetIPConnection> remove = new ArrayList<>();
 		final List<KNXnetIPConnection> found = new ArrayList<>();
-		for (final Entry<KNXnetIPConnection, Object[]> e : connectionToKey.entrySet()) {
-			final long timestamp = (Long) e.getValue()[2];
+		final long now = System.currentTimeMillis();
+		for (final Map.Entry<KNXnetIPConnection, ConnectionState> e : connections.entrySet()) {
 			final KNXnetIPConnection conn = e.getKey();
-			if ((timestamp + keepDisruptedConnection) < System.currentTimeMillis()) {
+			if ((e.getValue().lastActivity + keepDisruptedConnection) < now) {
 				logger.info("remove expired disrupted connection {}", conn);
 				remove.add(conn);
 			}
 			else if (conn != c) { // we ignore c itself in the entry set, otherwise it would always show up in found
-				if (compare(e.getValue(), key) == compare)
+				if (e.getValue().compare(key) == compare)
 					found.add(conn);
 			}
 		}
@@ -137,103 +251,132 @@ class ReplayBuffer<T extends FrameEvent>
 	public void add(final KNXnetIPConnection c)
 	{
 		logger.debug("activate replay buffer for {}", c);
-		connectionToKey.put(c, keyFor(c));
+		connections.put(c, new ConnectionState(c, latestSequence()));
 	}
 
-	public void recordEvent(final T e)
+	/**
+	 * Records an event, overwriting the oldest event if the buffer is full.
+	 *
+	 * @param e event
+	 * @return the sequence number assigned to the recorded event
+	 */
+	public long recordEvent(final T e)
 	{
-		synchronized (buffer) {
-			while (buffer.size() >= maxBufferSize)
-				buffer.remove(0);
-			buffer.add(e);
+		final long sequence;
+		synchronized (this) {
+			sequence = nextSequence++;
+			ring[slot(sequence)] = e;
+			final FrameLog frameLog = log;
+			if (frameLog != null)
+				frameLog.append(sequence, e.getFrame().toByteArray());
 		}
-		logger.trace("record {} as event '{}'", e, e.id());
+		logger.trace("record {} as event '{}'", e, sequence);
+		return sequence;
 	}
 
-	// returns list of pending events for connection
-	public Collection<T> replay(final KNXnetIPConnection conn)
+	// returns pending events for connection
+	public Pending<T> replay(final KNXnetIPConnection conn)
 	{
 		final List<KNXnetIPConnection> candidates = disruptedCandidates(conn);
-		if (candidates.isEmpty())
-			return Collections.emptyList();
-
-		synchronized (buffer) {
-			// we select and terminate a single matching connection with the oldest successful event
-			long last = Long.MAX_VALUE;
-			KNXnetIPConnection selected = null;
-			for (final KNXnetIPConnection c : candidates) {
-				final long l = completedEvent.get(c);
-				if (l < last) {
-					last = l;
-					selected = c;
-				}
-			}
-			remove(selected);
-
-			// pending events
-			final int fromIndex = findEvent(last) + 1;
-			final int events = buffer.size() - fromIndex;
-			if (fromIndex == 0) {
-				logger.warn("{} has ≥ {} events pending with a buffer size of {}, up to {} events "
-						+ "will be missing", conn, events, buffer.size(), buffer.get(0).id() - last);
+		if (candidates.isEmpty()) {
+			final OptionalLong persisted = persistedPosition(conn);
+			if (persisted.isPresent()) {
+				logger.info("found persisted position of {} in {}", conn, log);
+				return pendingEvents(conn, persisted.getAsLong());
 			}
+			return new Pending<>(NoEvent, Collections.emptyList());
+		}
 
-			logger.info("{} has {} pending events for replay: ({}..{}]", conn, events, last, latestEventCount());
-			return new ArrayList<>(buffer.subList(fromIndex, buffer.size()));
+		// we select and terminate a single matching connection with the oldest successful event
+		long last = Long.MAX_VALUE;
+		KNXnetIPConnection selected = null;
+		for (final KNXnetIPConnection c : candidates) {
+			final ConnectionState state = connections.get(c);
+			if (state != null && state.lastSeen() < last) {
+				last = state.lastSeen();
+				selected = c;
+			}
 		}
+		if (selected == null)
+			return new Pending<>(NoEvent, Collections.emptyList());
+		remove(selected);
+		return pendingEvents(conn, last);
 	}
 
-	// call only iff synchronized on buffer
-	private int findEvent(final long last)
+	// returns the events recorded after the event with sequence 'last'
+	private synchronized Pending<T> pendingEvents(final KNXnetIPConnection conn, final long last)
 	{
-		for (int i = 0; i < buffer.size(); i++)
-			if (buffer.get(i).id() == last)
-				return i;
-		return -1;
+		final long oldest = Math.max(firstSequence, nextSequence - ring.length);
+		final long from = Math.max(last + 1, oldest);
+		if (from > last + 1) {
+			logger.warn("{} has ≥ {} events pending with a buffer size of {}, {} events will be missing", conn,
+					nextSequence - from, ring.length, from - last - 1);
+		}
+		final int events = (int) (nextSequence - from);
+		logger.info("{} has {} pending events for replay: ({}..{}]", conn, events, last, nextSequence - 1);
+		final List<T> pending = new ArrayList<>(events);
+		for (long seq = from; seq < nextSequence; seq++) {
+			@SuppressWarnings("unchecked")
+			final T e = (T) ring[slot(seq)];
+			pending.add(e);
+		}
+		return new Pending<>(from, pending);
 	}
 
-	public void completeEvent(final KNXnetIPConnection c, final T e)
+	/**
+	 * Marks the event with the supplied sequence number as successfully sent to a connection.
+	 *
+	 * @param c connection
+	 * @param sequence sequence number of the event, as returned by {@link #recordEvent(FrameEvent)}
+	 */
+	public void completeEvent(final KNXnetIPConnection c, final long sequence)
 	{
-		synchronized (connectionToKey) {
-			final Object[] key = connectionToKey.get(c);
-			if (key == null)
-				return;
-			key[2] = System.currentTimeMillis();
-		}
-		completedEvent.put(c, e.id());
-		logger.debug("{} successfully completed event '{}/{}'", c, e.id(), latestEventCount());
+		if (sequence == NoEvent)
+			return;
+		final ConnectionState state = connections.get(c);
+		if (state == null)
+			return;
+		state.lastActivity = System.currentTimeMillis();
+		state.completed = sequence;
+		final FrameLog frameLog = log;
+		if (frameLog != null)
+			frameLog.completed(state.host, sequence, state.lastActivity);
+		if (logger.isDebugEnabled())
+			logger.debug("{} successfully completed event '{}/{}'", c, sequence, latestSequence());
 	}
 
-	private long latestEventCount()
+	private synchronized long latestSequence()
 	{
-		synchronized (buffer) {
-			return buffer.get(buffer.size() - 1).id();
-		}
+		return nextSequence - 1;
 	}
 
 	public void remove(final KNXnetIPConnection c)
 	{
-		completedEvent.remove(c);
-		final Object[] key = connectionToKey.remove(c);
-		logger.trace("remove {} (ID {})", c, key);
+		final ConnectionState state = connections.remove(c);
+		logger.trace("remove {} ({})", c, state);
+		final FrameLog frameLog = log;
+		if (state != null && frameLog != null) {
+			synchronized (connections) {
+				for (final ConnectionState other : connections.values())
+					if (other.host.equals(state.host))
+						return;
+			}
+			frameLog.removeCompleted(state.host);
+		}
 	}
 
-	private static Object[] keyFor(final KNXnetIPConnection c)
+	void close()
 	{
-		final InetSocketAddress remote = c.getRemoteAddress();
-		final Object[] key = new Object[] { remote.getAddress().getHostAddress(), remote.getPort(),
-			System.currentTimeMillis() };
-		return key;
+		final FrameLog frameLog = log;
+		log = null;
+		if (frameLog != null)
+			frameLog.close();
 	}
 
-	// returns 0: no match, 1: key[0] matches to[0], 2: match 1 and key[1] matches to[1]
-	private static int compare(final Object[] key, final Object[] to)
+	int capacity() { return ring.length; }
+
+	private int slot(final long sequence)
 	{
-		if (key[0].equals(to[0])) {
-			if (key[1].equals(to[1]))
-				return 2;
-			return 1;
-		}
-		return 0;
+		return (int) (sequence % ring.length);
 	}
 }
@@ -0,0 +1,245 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+/**
+ * KNX IP routing busy flow control for sending on a routing connection. Sending is paced by a token bucket, which
+ * is derived from the wait time of received routing busy notifications and the routing busy counter. Each routing
+ * service has its own instance, so routing busy notifications on one routing connection do not throttle another.
+ * <p>
+ * Timing is based on {@link System#nanoTime()}; the busy counter is decremented lazily when sending, not by a
+ * periodic timer. Frames that must not be sent yet are queued in order, and released by a one-shot task scheduled
+ * for the earliest possible send time. Callers never block.
+ */
+final class RoutingFlowControl {
+	private static final Duration DefaultInterval = Duration.ofMillis(5);
+
+	// all timings are multiples of the interval, with the default interval: 50 ms, 100 ms, 5 ms, and 10 ms
+	private final long randomWaitScale;
+	private final long throttleScale;
+	// decrement interval of the busy counter after throttling ended, and token interval while throttling
+	private final long interval;
+	private final long minBusyInterval;
+
+	private final ScheduledExecutorService scheduler;
+	private final int capacity;
+	private final Logger logger;
+
+	// guarded by this
+	private int busyCounter;
+	private long lastRoutingBusy;
+	// invariant on deadlines: throttle >= pause sending >= current wait
+	private long currentWaitUntil;
+	private long pauseSendingUntil;
+	private long throttleUntil;
+	private long decrementFrom;
+	private long nextToken;
+
+	private final Deque<Runnable> pending = new ArrayDeque<>();
+	private boolean releasing;
+	private long dropped;
+	// messages lost by other routers, as reported in routing lost message notifications
+	private long lostMessages;
+
+	RoutingFlowControl(final ScheduledExecutorService scheduler, final int capacity, final Logger logger) {
+		this(scheduler, capacity, logger, DefaultInterval);
+	}
+
+	RoutingFlowControl(final ScheduledExecutorService scheduler, final int capacity, final Logger logger,
+			final Duration interval) {
+		this.interval = interval.toNanos();
+		randomWaitScale = 10 * this.interval;
+		throttleScale = 20 * this.interval;
+		minBusyInterval = 2 * this.interval;
+		this.scheduler = scheduler;
+		this.capacity = capacity;
+		this.logger = logger;
+		final long now = System.nanoTime();
+		lastRoutingBusy = now - minBusyInterval;
+		currentWaitUntil = now;
+		pauseSendingUntil = now;
+		throttleUntil = now;
+		decrementFrom = now;
+		nextToken = now;
+	}
+
+	/**
+	 * Updates the flow control timing for a received routing busy notification.
+	 *
+	 * @param waitTime the wait time in milliseconds of the routing busy notification
+	 * @return <code>true</code> if the routing busy extended the current wait time, <code>false</code> otherwise
+	 */
+	synchronized boolean routingBusy(final int waitTime) {
+		final long now = System.nanoTime();
+		updateBusyCounter(now);
+
+		final long waitUntil = now + TimeUnit.MILLISECONDS.toNanos(waitTime);
+		boolean extended = false;
+		if (waitUntil - currentWaitUntil > 0) {
+			currentWaitUntil = waitUntil;
+			extended = true;
+		}
+		boolean update = extended;
+		// increment random wait scaling iff >= 10 ms (two intervals) have passed since the last counted routing busy
+		if (now - lastRoutingBusy >= minBusyInterval) {
+			lastRoutingBusy = now;
+			busyCounter++;
+			update = true;
+		}
+		if (!update)
+			return extended;
+
+		final long randomWait = (long) (ThreadLocalRandom.current().nextDouble() * busyCounter * randomWaitScale);
+		pauseSendingUntil = currentWaitUntil + randomWait;
+		final long throttle = busyCounter * throttleScale;
+		throttleUntil = pauseSendingUntil + throttle;
+		decrementFrom = throttleUntil + interval;
+		nextToken = pauseSendingUntil;
+
+		logger.info("set routing busy counter = {}, random wait = {} ms, continue sending in {} ms, throttle {} ms",
+				busyCounter, TimeUnit.NANOSECONDS.toMillis(randomWait),
+				TimeUnit.NANOSECONDS.toMillis(pauseSendingUntil - now), TimeUnit.NANOSECONDS.toMillis(throttle));
+		return extended;
+	}
+
+	/**
+	 * Sends a frame now if flow control allows it, or queues it for sending in order once it does.
+	 *
+	 * @param send sends the frame, invoked by the caller or the release task
+	 */
+	void send(final Runnable send) {
+		synchronized (this) {
+			if (releasing || delay(System.nanoTime()) > 0) {
+				if (pending.size() >= capacity) {
+					pending.poll();
+					dropped++;
+				}
+				pending.add(send);
+				if (!releasing) {
+					releasing = true;
+					scheduleRelease(System.nanoTime());
+				}
+				return;
+			}
+		}
+		send.run();
+	}
+
+	synchronized void lostMessages(final int lost) {
+		lostMessages += lost;
+	}
+
+	synchronized int busyCounter() {
+		updateBusyCounter(System.nanoTime());
+		return busyCounter;
+	}
+
+	@Override
+	public synchronized String toString() {
+		updateBusyCounter(System.nanoTime());
+		return String.format("busy counter %d, queued %d/%d, dropped %d, lost by routers %d", busyCounter,
+				pending.size(), capacity, dropped, lostMessages);
+	}
+
+	private void release() {
+		while (true) {
+			final Runnable send;
+			synchronized (this) {
+				if (pending.isEmpty()) {
+					releasing = false;
+					return;
+				}
+				final long now = System.nanoTime();
+				if (delay(now) > 0) {
+					scheduleRelease(now);
+					return;
+				}
+				send = pending.poll();
+			}
+			try {
+				send.run();
+			}
+			catch (final RuntimeException e) {
+				logger.warn("sending on routing connection failed", e);
+			}
+		}
+	}
+
+	// guarded by this
+	private void scheduleRelease(final long now) {
+		final long delay = delay(now);
+		logger.debug("applying routing flow control, continue sending in {} ms", TimeUnit.NANOSECONDS.toMillis(delay));
+		scheduler.schedule(this::release, delay, TimeUnit.NANOSECONDS);
+	}
+
+	// returns the time to wait until a frame may be sent, takes a token if sending is possible right away
+	// guarded by this
+	private long delay(final long now) {
+		updateBusyCounter(now);
+		if (busyCounter == 0)
+			return 0;
+		if (pauseSendingUntil - now > 0)
+			return pauseSendingUntil - now;
+		if (throttleUntil - now > 0) {
+			final long wait = nextToken - now;
+			if (wait > 0)
+				return wait;
+			nextToken = now + interval;
+		}
+		return 0;
+	}
+
+	// decrements the busy counter every interval after throttling ended
+	// guarded by this
+	private void updateBusyCounter(final long now) {
+		if (busyCounter == 0 || now - decrementFrom < 0)
+			return;
+		final long steps = (now - decrementFrom) / interval + 1;
+		busyCounter = (int) Math.max(0, busyCounter - steps);
+		decrementFrom += steps * interval;
+	}
+}
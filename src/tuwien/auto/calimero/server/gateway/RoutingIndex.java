@@ -0,0 +1,151 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tuwien.auto.calimero.IndividualAddress;
+import tuwien.auto.calimero.knxnetip.KNXnetIPConnection;
+import tuwien.auto.calimero.server.knxnetip.DataEndpoint;
+import tuwien.auto.calimero.server.knxnetip.ServiceContainer;
+
+/**
+ * Index for individual address routing, providing the subnet connectors by area/line, and the client connections by
+ * their assigned individual address.
+ */
+final class RoutingIndex {
+	private static final SubnetConnector[] None = {};
+
+	private static final class Client {
+		final ServiceContainer sc;
+		final DataEndpoint endpoint;
+
+		Client(final ServiceContainer sc, final DataEndpoint endpoint) {
+			this.sc = sc;
+			this.endpoint = endpoint;
+		}
+	}
+
+	// subnet connectors matching an area/line (high byte of individual address), in order of precedence
+	private volatile SubnetConnector[][] subnets = new SubnetConnector[256][];
+	private final Map<IndividualAddress, Client> clients = new ConcurrentHashMap<>();
+
+	static boolean matchesSubnet(final IndividualAddress addr, final IndividualAddress subnetMask) {
+		if (subnetMask == null)
+			return true;
+		if (subnetMask.getArea() == addr.getArea()) {
+			// if we represent an area coupler, line is 0
+			if (subnetMask.getLine() == 0 || subnetMask.getLine() == addr.getLine()) {
+				// address does match the mask
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// call on any change of subnet connectors
+	void updateSubnets(final List<SubnetConnector> connectors) {
+		final SubnetConnector[][] index = new SubnetConnector[256][];
+		for (int areaLine = 0; areaLine < index.length; areaLine++) {
+			final IndividualAddress addr = new IndividualAddress(areaLine << 8);
+			final List<SubnetConnector> matches = new ArrayList<>();
+			for (final SubnetConnector connector : connectors)
+				if (matchesSubnet(addr, connector.getServiceContainer().getMediumSettings().getDeviceAddress()))
+					matches.add(connector);
+			index[areaLine] = matches.isEmpty() ? None : matches.toArray(None);
+		}
+		subnets = index;
+	}
+
+	/**
+	 * Returns the subnet connectors responsible for the destination, in order of precedence.
+	 *
+	 * @param dst destination address
+	 * @return array of subnet connectors, empty array if there is no matching subnet, do not modify
+	 */
+	SubnetConnector[] subnets(final IndividualAddress dst) {
+		return subnets[dst.getRawAddress() >>> 8];
+	}
+
+	void addClient(final ServiceContainer sc, final DataEndpoint endpoint) {
+		final IndividualAddress device = endpoint.deviceAddress();
+		if (device != null)
+			clients.put(device, new Client(sc, endpoint));
+	}
+
+	void removeClient(final KNXnetIPConnection connection) {
+		if (!(connection instanceof DataEndpoint))
+			return;
+		final IndividualAddress device = ((DataEndpoint) connection).deviceAddress();
+		if (device != null)
+			clients.computeIfPresent(device, (addr, client) -> client.endpoint == connection ? null : client);
+	}
+
+	/**
+	 * Returns the open client connection with the assigned individual address, if the address belongs to the subnet of
+	 * the client's service container.
+	 *
+	 * @param dst assigned client address
+	 * @return client connection, or <code>null</code>
+	 */
+	DataEndpoint client(final IndividualAddress dst) {
+		final Client client = clients.get(dst);
+		if (client == null || client.endpoint.getState() == KNXnetIPConnection.CLOSED)
+			return null;
+		if (!matchesSubnet(dst, client.sc.getMediumSettings().getDeviceAddress()))
+			return null;
+		return client.endpoint;
+	}
+
+	/**
+	 * Returns the open client connection of service container <code>sc</code> with the assigned individual address.
+	 *
+	 * @param sc service container
+	 * @param dst assigned client address
+	 * @return client connection, or <code>null</code>
+	 */
+	DataEndpoint client(final ServiceContainer sc, final IndividualAddress dst) {
+		final Client client = clients.get(dst);
+		if (client == null || client.sc != sc || client.endpoint.getState() == KNXnetIPConnection.CLOSED)
+			return null;
+		return client.endpoint;
+	}
+}
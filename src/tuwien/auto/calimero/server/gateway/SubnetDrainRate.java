@@ -0,0 +1,121 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import java.util.concurrent.TimeUnit;
+
+import tuwien.auto.calimero.link.medium.KNXMediumSettings;
+
+/**
+ * Estimates the rate at which a KNX subnet drains telegrams, based on the nominal telegram duration of the subnet
+ * medium and on measured send completions. The estimate is a moving average of the send duration per telegram, a
+ * measured duration is never shorter than the nominal duration of a telegram of the same length on that medium.
+ */
+final class SubnetDrainRate {
+	// octets of a typical standard frame (group value write with 1 byte of data), used before any measurement
+	private static final int typicalFrameLength = 9;
+	// weight of a new sample in the moving average, as a power of 2
+	private static final int smoothing = 3;
+
+	private final int medium;
+	// guarded by this
+	private long avgNanos;
+	private long samples;
+
+	SubnetDrainRate(final int medium) {
+		this.medium = medium;
+		avgNanos = nominalNanos(medium, typicalFrameLength);
+	}
+
+	/**
+	 * Records a completed send of a telegram to the subnet.
+	 *
+	 * @param octets telegram length on the medium
+	 * @param nanos measured time it took to send the telegram
+	 */
+	synchronized void sent(final int octets, final long nanos) {
+		final long sample = Math.max(nanos, nominalNanos(medium, octets));
+		avgNanos += (sample - avgNanos) >> smoothing;
+		samples++;
+	}
+
+	/**
+	 * @return estimated time to send one telegram, in nanoseconds
+	 */
+	synchronized long nanosPerTelegram() { return avgNanos; }
+
+	/**
+	 * @return estimated number of telegrams per second the subnet is able to drain
+	 */
+	double telegramsPerSecond() { return (double) TimeUnit.SECONDS.toNanos(1) / nanosPerTelegram(); }
+
+	@Override
+	public synchronized String toString() {
+		return String.format("%s drain rate %.0f msgs/s (%d samples)", KNXMediumSettings.getMediumString(medium),
+				TimeUnit.SECONDS.toNanos(1) / (double) avgNanos, samples);
+	}
+
+	/**
+	 * Returns the nominal duration of sending a standard or extended frame, including the acknowledgment and the
+	 * minimum bus idle time.
+	 *
+	 * @param medium KNX medium
+	 * @param octets frame length on the medium
+	 * @return nominal duration in nanoseconds
+	 */
+	static long nominalNanos(final int medium, final int octets) {
+		switch (medium) {
+		case KNXMediumSettings.MEDIUM_TP1:
+			// 9600 bit/s, 13 bit times per character, 50 bit times idle, 15 bit times until the ack character
+			return bits(50 + 13 * octets + 15 + 13, 9600);
+		case KNXMediumSettings.MEDIUM_PL110:
+			// 1200 bit/s, training sequence, preamble and ack are about 100 bit times, 12 bit times per character
+			return bits(100 + 12 * octets, 1200);
+		case KNXMediumSettings.MEDIUM_RF:
+			// 16384 chip/s, 2 octets crc per block of 16 octets, preamble and sync about 100 bit times
+			return bits(100 + 8 * (octets + 2 * ((octets + 15) / 16)), 16384);
+		default:
+			// knx ip: limited by receiver flow control, assume 1 ms
+			return TimeUnit.MILLISECONDS.toNanos(1);
+		}
+	}
+
+	private static long bits(final int bits, final int bitsPerSecond) {
+		return bits * TimeUnit.SECONDS.toNanos(1) / bitsPerSecond;
+	}
+}
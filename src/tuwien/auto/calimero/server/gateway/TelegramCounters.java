@@ -0,0 +1,143 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.gateway;
+
+import static tuwien.auto.calimero.device.ios.InterfaceObject.KNXNETIP_PARAMETER_OBJECT;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import tuwien.auto.calimero.device.ios.InterfaceObjectServer;
+import tuwien.auto.calimero.device.ios.KnxPropertyException;
+import tuwien.auto.calimero.mgmt.PropertyAccess.PID;
+
+/**
+ * Message transmit and queue overflow counters of a KNXnet/IP parameter object instance. Counting is done in memory,
+ * the counter properties in the interface object server are only updated on {@link #publish()}.
+ */
+final class TelegramCounters {
+	private static final int[] pids = { PID.MSG_TRANSMIT_TO_KNX, PID.MSG_TRANSMIT_TO_IP, PID.QUEUE_OVERFLOW_TO_KNX,
+		PID.QUEUE_OVERFLOW_TO_IP };
+	// transmit counters are 4 byte unsigned, overflow counters 2 byte unsigned and do not wrap around
+	private static final long[] maxValues = { 0xffff_ffffL, 0xffff_ffffL, 0xffff, 0xffff };
+
+	private final InterfaceObjectServer ios;
+	private final int objectInstance;
+
+	// counters are never reset, a property value written by someone else is applied as offset
+	private final LongAdder[] counters = { new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder() };
+	private final AtomicBoolean dirty = new AtomicBoolean();
+
+	// guarded by this
+	private final long[] offsets = new long[pids.length];
+	private final long[] published = new long[pids.length];
+	private boolean publishing;
+
+	TelegramCounters(final InterfaceObjectServer ios, final int objectInstance) {
+		this.ios = ios;
+		this.objectInstance = objectInstance;
+	}
+
+	void transmitted(final boolean toKnx) { increment(toKnx ? 0 : 1); }
+
+	void overflow(final boolean toKnx) { increment(toKnx ? 2 : 3); }
+
+	synchronized long transmittedToKnx() { return value(0); }
+
+	synchronized long transmittedToIp() { return value(1); }
+
+	synchronized long overflowToKnx() { return value(2); }
+
+	synchronized long overflowToIp() { return value(3); }
+
+	/**
+	 * Writes changed counter values to the counter properties.
+	 *
+	 * @throws KnxPropertyException on error setting a property
+	 */
+	synchronized void publish() {
+		if (!dirty.getAndSet(false))
+			return;
+		publishing = true;
+		try {
+			for (int i = 0; i < pids.length; i++) {
+				final long v = value(i);
+				if (v == published[i])
+					continue;
+				published[i] = v;
+				final byte[] data = maxValues[i] == 0xffff ? new byte[] { (byte) (v >> 8), (byte) v }
+						: new byte[] { (byte) (v >> 24), (byte) (v >> 16), (byte) (v >> 8), (byte) v };
+				ios.setProperty(KNXNETIP_PARAMETER_OBJECT, objectInstance, pids[i], 1, 1, data);
+			}
+		}
+		finally {
+			publishing = false;
+		}
+	}
+
+	/**
+	 * Synchronizes a counter with a property value written by someone else, e.g., a counter reset.
+	 *
+	 * @param pid property identifier
+	 * @param value the property value
+	 */
+	synchronized void propertyChanged(final int pid, final long value) {
+		// ignore our own updates during publishing
+		if (publishing)
+			return;
+		for (int i = 0; i < pids.length; i++) {
+			if (pids[i] == pid && value != published[i]) {
+				// increments done concurrently are not lost, they count on top of the new value
+				offsets[i] = value - counters[i].sum();
+				published[i] = value;
+			}
+		}
+	}
+
+	private void increment(final int counter) {
+		counters[counter].increment();
+		if (!dirty.get())
+			dirty.set(true);
+	}
+
+	// guarded by this
+	private long value(final int counter) {
+		final long v = counters[counter].sum() + offsets[counter];
+		return maxValues[counter] == 0xffff ? Math.min(v, 0xffff) : v & maxValues[counter];
+	}
+}
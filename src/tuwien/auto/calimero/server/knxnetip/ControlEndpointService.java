@@ -46,7 +46,6 @@ import static tuwien.auto.calimero.knxnetip.util.ServiceFamiliesDIB.TUNNELING;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.Inet4Address;
 import java.net.InetAddress;
@@ -54,7 +53,6 @@ import java.net.InetSocketAddress;
 import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
-import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -109,6 +107,7 @@ import tuwien.auto.calimero.knxnetip.util.TunnelCRI;
 import tuwien.auto.calimero.knxnetip.util.TunnelingDib;
 import tuwien.auto.calimero.log.LogService.LogLevel;
 import tuwien.auto.calimero.mgmt.PropertyAccess.PID;
+import tuwien.auto.calimero.server.LocalAddresses;
 import tuwien.auto.calimero.server.knxnetip.SecureSession.Session;
 
 final class ControlEndpointService extends ServiceLooper
@@ -141,6 +140,13 @@ final class ControlEndpointService extends ServiceLooper
 
 	private final Closeable tcpLooper;
 
+	// serialized search responses, the requested DIB types are client supplied, therefore limit the cache size
+	private static final int MaxCachedSearchResponses = 16;
+	private volatile Map<List<Object>, byte[]> searchResponses = new ConcurrentHashMap<>();
+
+	// data endpoint shared by all connections, if configured for the service container
+	private SharedDataEndpointService sharedDataEndpoint;
+
 	ControlEndpointService(final KNXnetIPServer server, final ServiceContainer sc)
 	{
 		super(server, null, 512, 10000);
@@ -201,6 +207,10 @@ final class ControlEndpointService extends ServiceLooper
 			tcpLooper.close();
 		}
 		catch (final IOException ignore) {}
+		synchronized (this) {
+			if (sharedDataEndpoint != null)
+				sharedDataEndpoint.quit();
+		}
 		super.quit();
 	}
 
@@ -218,7 +228,6 @@ final class ControlEndpointService extends ServiceLooper
 			}
 		}
 		catch (final IOException e) {}
-		sessions.closeDormantSessions();
 	}
 
 	ServiceContainer getServiceContainer()
@@ -235,6 +244,8 @@ final class ControlEndpointService extends ServiceLooper
 		final int port) throws KNXFormatException, IOException
 	{
 		if (h.isSecure()) {
+			if (h.getServiceType() == SecureSession.SessionReq && !server.sessionRequests().tryAcquire(src))
+				return true;
 			try {
 				secureSvcInProgress = true;
 				return sessions.acceptService(h, data, offset, new InetSocketAddress(src, port), this);
@@ -244,6 +255,8 @@ final class ControlEndpointService extends ServiceLooper
 			}
 		}
 		else if (h.getServiceType() == KNXnetIPHeader.CONNECT_REQ) {
+			if (!server.connectRequests().tryAcquire(src))
+				return true;
 			final ConnectRequest req = new ConnectRequest(data, offset);
 			final var connType = req.getCRI().getConnectionType();
 
@@ -256,7 +269,7 @@ final class ControlEndpointService extends ServiceLooper
 				final InetSocketAddress ctrlEndpt = createResponseAddress(req.getControlEndpoint(), src, port, 1);
 				final byte[] buf = PacketHelper
 						.toPacket(errorResponse(ErrorCodes.CONNECTION_TYPE, ctrlEndpt.toString()));
-				s.send(new DatagramPacket(buf, buf.length, ctrlEndpt));
+				UdpMultiplexer.send(s, buf, ctrlEndpt);
 			}
 			else
 				return acceptControlService(0, h, data, offset, src, port);
@@ -272,6 +285,8 @@ final class ControlEndpointService extends ServiceLooper
 		final int svc = h.getServiceType();
 		if (svc == KNXnetIPHeader.SearchRequest) {
 			// extended unicast search request to this control endpoint
+			if (!server.searchRequests().tryAcquire(src))
+				return true;
 			if (!checkVersion(h))
 				return true;
 
@@ -478,8 +493,12 @@ final class ControlEndpointService extends ServiceLooper
 		try {
 			final NetworkInterface ni = NetworkInterface.getByInetAddress(local.getAddress());
 			final byte[] mac = ni != null ? ni.getHardwareAddress() : null;
-			server.setProperty(KNXNETIP_PARAMETER_OBJECT, objectInstance(), PID.MAC_ADDRESS,
-					mac == null ? new byte[6] : mac);
+			// only update on change, every update invalidates the cached search responses
+			final byte[] current = server.getProperty(KNXNETIP_PARAMETER_OBJECT, objectInstance(), PID.MAC_ADDRESS,
+					new byte[6]);
+			final byte[] update = mac == null ? new byte[6] : mac;
+			if (!Arrays.equals(current, update))
+				server.setProperty(KNXNETIP_PARAMETER_OBJECT, objectInstance(), PID.MAC_ADDRESS, update);
 
 			// skip response if we have a mac filter set which does not match our mac
 			if (macFilter.length > 0 && !Arrays.equals(macFilter, mac))
@@ -498,18 +517,38 @@ final class ControlEndpointService extends ServiceLooper
 			}
 		}
 
+		final byte[] buf = searchResponse(local, true, requestedDibs);
+		logger.trace("sending search response with container '{}' to {}", svcCont.getName(), dst);
+		send(sessionId, 0, buf, dst);
+		if (logger.isDebugEnabled())
+			logger.debug("KNXnet/IP discovery: identify as '{}' to {}", server.createDeviceDIB(svcCont).getName(), dst);
+	}
+
+	// returns the serialized search response, cached per local endpoint, response variant, and requested DIB types
+	byte[] searchResponse(final InetSocketAddress local, final boolean ext, final byte[] requestedDibs) {
 		final Set<Integer> set = new TreeSet<>();
 		for (final byte dibType : requestedDibs)
 			set.add(dibType & 0xff);
-		final List<DIB> dibs = new ArrayList<>();
-		set.forEach(dibType -> createDib(dibType, dibs, true));
 
+		final var cache = searchResponses;
+		final List<Object> key = List.of(local, ext, set);
+		final byte[] cached = cache.get(key);
+		if (cached != null)
+			return cached;
+
+		final List<DIB> dibs = new ArrayList<>();
+		set.forEach(dibType -> createDib(dibType, dibs, ext));
 		final HPAI hpai = new HPAI(HPAI.IPV4_UDP, local);
-		final byte[] buf = PacketHelper.toPacket(new SearchResponse(true, hpai, dibs));
-		logger.trace("sending search response with container '" + svcCont.getName() + "' to " + dst);
-		send(sessionId, 0, buf, dst);
-		final DeviceDIB deviceDib = server.createDeviceDIB(svcCont);
-		logger.debug("KNXnet/IP discovery: identify as '{}' to {}", deviceDib.getName(), dst);
+		final byte[] buf = PacketHelper.toPacket(new SearchResponse(ext, hpai, dibs));
+		// the tunneling DIB reflects the current connection state, don't cache it
+		if (!set.contains(DIB.TunnelingInfo) && cache.size() < MaxCachedSearchResponses)
+			cache.put(key, buf);
+		return buf;
+	}
+
+	// a response created concurrently to invalidation ends up in the discarded cache
+	void invalidateSearchResponses() {
+		searchResponses = new ConcurrentHashMap<>();
 	}
 
 	boolean createDib(final int dibType, final List<DIB> dibs, final boolean extended) {
@@ -577,7 +616,7 @@ final class ControlEndpointService extends ServiceLooper
 		}
 
 		if (!TcpLooper.send(buf, dst))
-			s.send(new DatagramPacket(buf, buf.length, dst));
+			UdpMultiplexer.send(s, buf, dst);
 	}
 
 	private List<IndividualAddress> knxAddresses()
@@ -600,7 +639,7 @@ final class ControlEndpointService extends ServiceLooper
 		final HPAI ep = svcCont.getControlEndpoint();
 		InetAddress ip = null;
 		try {
-			final DatagramSocket s = new DatagramSocket(null);
+			final DatagramSocket s = server.multiplexUdp() ? UdpMultiplexer.newSocket() : new DatagramSocket(null);
 			// if we use the KNXnet/IP default port, we have to enable address reuse for a successful bind
 			if (ep.getPort() == KNXnetIPConnection.DEFAULT_PORT)
 				s.setReuseAddress(true);
@@ -611,7 +650,7 @@ final class ControlEndpointService extends ServiceLooper
 					boundTo.getAddress().getHostAddress(), boundTo.getPort());
 			return s;
 		}
-		catch (final SocketException e) {
+		catch (final IOException e) {
 			logger.error("socket creation failed for {}:{}", ip, ep.getPort(), e);
 			throw wrappedException(e);
 		}
@@ -641,46 +680,23 @@ final class ControlEndpointService extends ServiceLooper
 		return mac == null ? new byte[6] : mac;
 	}
 
-	private Stream<InetAddress> usableIpAddresses() throws SocketException {
-		final NetworkInterface netif = NetworkInterface.getByName(svcCont.networkInterface());
-		if (netif != null)
-			return netif.inetAddresses().filter(Inet4Address.class::isInstance);
+	// uses the cached local addresses, this is called periodically to detect address changes
+	private Stream<InetAddress> usableIpAddresses() {
+		final var netif = LocalAddresses.of(svcCont.networkInterface());
+		if (netif.isPresent())
+			return netif.get().stream().filter(Inet4Address.class::isInstance);
 		if (!"any".equals(svcCont.networkInterface()))
 			return Stream.empty();
 
-		final var localHost = localHost().filter(Inet4Address.class::isInstance)
+		final var localHost = LocalAddresses.localHost().filter(Inet4Address.class::isInstance)
 				.filter(not(InetAddress::isLoopbackAddress));
 		if (localHost.isPresent())
 			return localHost.stream();
 
-		return NetworkInterface.networkInterfaces().filter(ControlEndpointService::interfaceIsUp)
-				.flatMap(NetworkInterface::inetAddresses).filter(Inet4Address.class::isInstance)
+		return LocalAddresses.ofInterfacesUp().filter(Inet4Address.class::isInstance)
 				.filter(not(InetAddress::isLoopbackAddress));
 	}
 
-	private static boolean interfaceIsUp(final NetworkInterface netif) {
-		try {
-			return netif.isUp();
-		}
-		catch (final SocketException e) {
-			return false;
-		}
-	}
-
-	private Optional<InetAddress> localHost() {
-		final long start = System.nanoTime();
-		try {
-			return Optional.of(InetAddress.getLocalHost());
-		}
-		catch (final UnknownHostException e) {}
-		finally {
-			final long elapsed = System.nanoTime() - start;
-			if (elapsed > 3_000_000_000L)
-				logger.warn("slow local host resolution, took {} ms", elapsed / 1000 / 1000);
-		}
-		return Optional.empty();
-	}
-
 	private int objectInstance()
 	{
 		return server.objectInstance(svcCont);
@@ -818,6 +834,17 @@ final class ControlEndpointService extends ServiceLooper
 			newDataEndpoint = new DataEndpoint(s, getSocket(), ctrlEndpt, dataEndpt, channelId, device, tunnel,
 					busmonitor, useNat, sessions, sessionId, this::connectionClosed, this::resetRequest);
 		}
+		else if (useSharedDataEndpoint()) {
+			try {
+				svcLoop = sharedDataEndpoint();
+			}
+			catch (IOException | RuntimeException e) {
+				logger.error("{}: shared data endpoint", svcCont.getName(), e);
+				return errorResponse(ErrorCodes.NO_MORE_CONNECTIONS, endpoint);
+			}
+			newDataEndpoint = new DataEndpoint(s, svcLoop.getSocket(), ctrlEndpt, dataEndpt, channelId, device,
+					tunnel, busmonitor, useNat, sessions, sessionId, this::connectionClosed, this::resetRequest);
+		}
 		else {
 			try {
 				svcLoop = new DataEndpointService(server, s);
@@ -828,8 +855,9 @@ final class ControlEndpointService extends ServiceLooper
 						((DataEndpointService) svcLoop)::resetRequest);
 				((DataEndpointService) svcLoop).svcHandler = newDataEndpoint;
 
-				looperTask = new LooperTask(server,
-						svcCont.getName() + " data endpoint " + newDataEndpoint.getRemoteAddress(), 0, () -> svcLoop);
+				if (!UdpMultiplexer.isMultiplexed(svcLoop.getSocket()))
+					looperTask = new LooperTask(server,
+							svcCont.getName() + " data endpoint " + newDataEndpoint.getRemoteAddress(), 0, () -> svcLoop);
 			}
 			catch (final RuntimeException e) {
 				// we don't have any better error than NO_MORE_CONNECTIONS for this
@@ -840,15 +868,28 @@ final class ControlEndpointService extends ServiceLooper
 		if (!acceptConnection(svcCont, newDataEndpoint, device, busmonitor)) {
 			// don't use sh.close() here, we would initiate tunneling disconnect sequence
 			// but we have to call svcLoop.quit() to close local data socket
-			svcLoop.quit();
+			if (svcLoop != sharedDataEndpoint)
+				svcLoop.quit();
 			freeDeviceAddress(device);
 			return errorResponse(ErrorCodes.NO_MORE_CONNECTIONS, endpoint);
 		}
 		connections.put(channelId, newDataEndpoint);
-		if (looperTask != null)
+		if (svcLoop != this)
+			newDataEndpoint.startReceiveTimeout();
+		if (looperTask != null) {
 			LooperTask.execute(looperTask);
-		if (!svcCont.reuseControlEndpoint())
 			looperTasks.add(looperTask);
+		}
+		else if (svcLoop instanceof DataEndpointService) {
+			try {
+				((DataEndpointService) svcLoop).multiplex();
+				multiplexedEndpoints.add((DataEndpointService) svcLoop);
+			}
+			catch (final IOException e) {
+				newDataEndpoint.close(CloseEvent.INTERNAL, "multiplexing data endpoint", LogLevel.ERROR, e);
+				return errorResponse(ErrorCodes.NO_MORE_CONNECTIONS, endpoint);
+			}
+		}
 
 		// for udp, always create our own HPAI from the socket, since the service container
 		// might have opted for ephemeral port use
@@ -858,6 +899,22 @@ final class ControlEndpointService extends ServiceLooper
 		return new ConnectResponse(channelId, ErrorCodes.NO_ERROR, hpai, crd);
 	}
 
+	private boolean useSharedDataEndpoint() {
+		return svcCont instanceof DefaultServiceContainer && ((DefaultServiceContainer) svcCont).sharedDataEndpoint();
+	}
+
+	private synchronized SharedDataEndpointService sharedDataEndpoint() throws IOException {
+		if (sharedDataEndpoint == null || sharedDataEndpoint.getSocket().isClosed()) {
+			final var svc = new SharedDataEndpointService(server, s, connections, sessions);
+			if (UdpMultiplexer.isMultiplexed(svc.getSocket()))
+				svc.multiplex();
+			else
+				LooperTask.execute(new LooperTask(server, svcCont.getName() + " shared data endpoint", 0, () -> svc));
+			sharedDataEndpoint = svc;
+		}
+		return sharedDataEndpoint;
+	}
+
 	private List<DataEndpoint> activeMonitorConnections() {
 		return connections.values().stream().filter(DataEndpoint::isMonitor).collect(toList());
 	}
@@ -1092,6 +1149,8 @@ final class ControlEndpointService extends ServiceLooper
 	// workaround to find the correct looper/connection when ETS sends to the wrong UDP port
 	// TODO make thread-safe
 	private static final Set<LooperTask> looperTasks = Collections.newSetFromMap(new WeakHashMap<>());
+	private static final Set<DataEndpointService> multiplexedEndpoints = Collections
+			.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
 
 	static Optional<DataEndpointService> findDataEndpoint(final int channelId) {
 		for (final LooperTask t : looperTasks) {
@@ -1099,7 +1158,10 @@ final class ControlEndpointService extends ServiceLooper
 			if (looper.isPresent() && looper.get().svcHandler.getChannelId() == channelId)
 				return looper;
 		}
-		return Optional.empty();
+		synchronized (multiplexedEndpoints) {
+			return multiplexedEndpoints.stream().filter(looper -> looper.svcHandler.getChannelId() == channelId)
+					.findFirst();
+		}
 	}
 
 	boolean anyMatchDataConnection(final InetSocketAddress remoteEndpoint) {
@@ -37,11 +37,11 @@
 package tuwien.auto.calimero.server.knxnetip;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
@@ -94,6 +94,8 @@ public final class DataEndpoint extends ConnectionBase
 	// sender SHALL wait 10 seconds for the acknowledgment response
 	// to a device configuration request
 	private static final int CONFIGURATION_REQ_TIMEOUT = 10;
+	// KNX receive timeout
+	private static final Duration MaxReceiveInterval = Duration.ofSeconds(120);
 
 	private final BiConsumer<DataEndpoint, IndividualAddress> connectionClosed;
 	private final Consumer<DataEndpoint> resetRequest;
@@ -105,7 +107,8 @@ public final class DataEndpoint extends ConnectionBase
 	private volatile boolean shutdown;
 
 	// updated on every correctly received message
-	private long lastMsgTimestamp;
+	private volatile long lastMsgTimestamp;
+	private volatile HashedWheelTimer.Timeout receiveTimeout;
 
 	private final SecureSession sessions;
 	private final int sessionId;
@@ -183,16 +186,14 @@ public final class DataEndpoint extends ConnectionBase
 			final long seq = session.sendSeq.get(); // don't increment send seq, this is just for logging
 			buf = sessions.newSecurePacket(sessionId, packet);
 			final int msgTag = 0;
-			logger.trace("send session {} seq {} tag {} to {} {}", sessionId, seq, msgTag, dst, DataUnitBuilder.toHex(buf, " "));
+			if (logger.isTraceEnabled())
+				logger.trace("send session {} seq {} tag {} to {} {}", sessionId, seq, msgTag, dst,
+						DataUnitBuilder.toHex(buf, " "));
 		}
 
 		if (TcpLooper.send(buf, dst))
 			return;
-		final DatagramPacket p = new DatagramPacket(buf, buf.length, dst);
-		if (dst.equals(dataEndpt))
-			socket.send(p);
-		else
-			ctrlSocket.send(p);
+		UdpMultiplexer.send(dst.equals(dataEndpt) ? socket : ctrlSocket, buf, dst);
 	}
 
 	@Override
@@ -233,6 +234,8 @@ public final class DataEndpoint extends ConnectionBase
 			shutdown = true;
 		}
 
+		if (receiveTimeout != null)
+			receiveTimeout.cancel();
 		LogService.log(logger, level, "close connection for channel " + channelId + " - " + reason, t);
 		connectionClosed.accept(this, device);
 		super.cleanup(initiator, reason, level, t);
@@ -264,7 +267,7 @@ public final class DataEndpoint extends ConnectionBase
 			logger.warn("received non-secure packet {} - discard {}", h, DataUnitBuilder.toHex(data, " "));
 			return true;
 		}
-		return sessions.acceptService(h, data, offset, dataEndpt, this);
+		return sessions.acceptService(h, data, offset, dataEndpt, channelId -> this);
 	}
 
 	boolean acceptDataService(final KNXnetIPHeader h, final byte[] data, final int offset) throws KNXFormatException, IOException {
@@ -532,11 +535,32 @@ public final class DataEndpoint extends ConnectionBase
 		return lastMsgTimestamp;
 	}
 
+	// closes this connection if we don't receive a message within the max. receive interval; receiving a message
+	// only updates the timestamp, the timeout is extended once it expires
+	void startReceiveTimeout()
+	{
+		receiveTimeout = HashedWheelTimer.instance().schedule(this::checkReceiveTimeout, MaxReceiveInterval);
+	}
+
+	private void checkReceiveTimeout()
+	{
+		final long remaining = lastMsgTimestamp + MaxReceiveInterval.toMillis() - System.currentTimeMillis();
+		if (remaining > 0)
+			receiveTimeout.reschedule(Duration.ofMillis(remaining));
+		else
+			close(CloseEvent.SERVER_REQUEST, "server connection timeout", LogLevel.WARN, null);
+	}
+
 	int getChannelId()
 	{
 		return channelId;
 	}
 
+	int sessionId()
+	{
+		return sessionId;
+	}
+
 	SocketAddress getCtrlSocketAddress()
 	{
 		return ctrlSocket.getLocalSocketAddress();
@@ -41,7 +41,6 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.net.SocketException;
 
 import tuwien.auto.calimero.CloseEvent;
 import tuwien.auto.calimero.KNXFormatException;
@@ -50,14 +49,12 @@ import tuwien.auto.calimero.log.LogService.LogLevel;
 
 final class DataEndpointService extends ServiceLooper
 {
-	// KNX receive timeout in seconds
-	private static final int MAX_RECEIVE_INTERVAL = 120;
-
 	DataEndpoint svcHandler;
 
 	DataEndpointService(final KNXnetIPServer server, final DatagramSocket localCtrlEndpt)
 	{
-		super(server, newSocketUsingIp(localCtrlEndpt), 512, MAX_RECEIVE_INTERVAL * 1000);
+		// the data endpoint enforces the receive timeout, our socket does not time out
+		super(server, newSocketUsingIp(server, localCtrlEndpt), 512, 0);
 		logger.debug("created socket on " + s.getLocalSocketAddress());
 	}
 
@@ -67,18 +64,6 @@ final class DataEndpointService extends ServiceLooper
 		fireResetRequest(endpoint.getName(), ctrlEndpoint);
 	}
 
-	@Override
-	protected void onTimeout()
-	{
-		// at first check if control endpoint received a connection-state request in
-		// the meantime and updated the last msg timestamp
-		final long now = System.currentTimeMillis();
-		if (now - svcHandler.getLastMsgTimestamp() >= MAX_RECEIVE_INTERVAL * 1000)
-			svcHandler.close(CloseEvent.SERVER_REQUEST, "server connection timeout", LogLevel.WARN, null);
-		else
-			setTimeout();
-	}
-
 	@Override
 	void cleanup(final LogLevel level, final Throwable t)
 	{
@@ -90,12 +75,7 @@ final class DataEndpointService extends ServiceLooper
 	boolean handleServiceType(final KNXnetIPHeader h, final byte[] data, final int offset, final InetAddress src,
 		final int port) throws KNXFormatException, IOException
 	{
-		try {
-			return svcHandler.handleDataServiceType(h, data, offset);
-		}
-		finally {
-			setTimeout();
-		}
+		return svcHandler.handleDataServiceType(h, data, offset);
 	}
 
 	void rebindSocket(final int port)
@@ -108,30 +88,28 @@ final class DataEndpointService extends ServiceLooper
 		svcHandler.setSocket(s);
 		reboundSocket = true;
 		old.close();
+		if (UdpMultiplexer.isMultiplexed(s)) {
+			try {
+				multiplex();
+			}
+			catch (final IOException e) {
+				svcHandler.close(CloseEvent.INTERNAL, "multiplexing rebound socket", LogLevel.ERROR, e);
+				return;
+			}
+		}
 		logger.warn("{} (channel {}): rebound socket {} to use UDP port {}", svcHandler.getName(),
 				svcHandler.getChannelId(), oldAddress, port);
 	}
 
-	private void setTimeout()
+	private static DatagramSocket newSocketUsingIp(final KNXnetIPServer server, final DatagramSocket localCtrlEndpt)
 	{
-		// don't allow timeout 0, otherwise socket will have infinite timeout
-		final long elapsed = System.currentTimeMillis() - svcHandler.getLastMsgTimestamp();
-		final int timeout = Math.max((int) (MAX_RECEIVE_INTERVAL * 1000 - elapsed), 250);
 		try {
-			s.setSoTimeout(timeout);
-		}
-		catch (final SocketException e) {}
-	}
-
-	private static DatagramSocket newSocketUsingIp(final DatagramSocket localCtrlEndpt)
-	{
-		try {
-			final DatagramSocket s = new DatagramSocket(null);
+			final DatagramSocket s = newSocket(server.multiplexUdp());
 			s.setReuseAddress(true);
 			s.bind(new InetSocketAddress(localCtrlEndpt.getLocalAddress(), 0));
 			return s;
 		}
-		catch (final SocketException e) {
+		catch (final IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
@@ -140,13 +118,18 @@ final class DataEndpointService extends ServiceLooper
 	private DatagramSocket rebindSocketUsingPort(final int port)
 	{
 		try {
-			final DatagramSocket rebind = new DatagramSocket(null);
+			final DatagramSocket rebind = newSocket(UdpMultiplexer.isMultiplexed(s));
 			rebind.setReuseAddress(true);
 			rebind.bind(new InetSocketAddress(s.getLocalAddress(), port));
 			return rebind;
 		}
-		catch (final SocketException e) {
+		catch (final IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
+
+	private static DatagramSocket newSocket(final boolean multiplexed) throws IOException
+	{
+		return multiplexed ? UdpMultiplexer.newSocket() : new DatagramSocket(null);
+	}
 }
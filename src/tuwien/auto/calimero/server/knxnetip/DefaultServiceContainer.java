@@ -37,9 +37,11 @@
 package tuwien.auto.calimero.server.knxnetip;
 
 import java.net.InetAddress;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
+import java.util.Optional;
 
 import tuwien.auto.calimero.KNXIllegalArgumentException;
 import tuwien.auto.calimero.knxnetip.util.HPAI;
@@ -52,6 +54,21 @@ import tuwien.auto.calimero.link.medium.KNXMediumSettings;
  */
 public class DefaultServiceContainer implements ServiceContainer
 {
+	/**
+	 * Policy applied if the outbound queue of a client connection is full.
+	 */
+	public enum OverflowPolicy {
+		/** Discard the oldest queued frame. */
+		DropOldest,
+		/** Close the client connection. */
+		Disconnect,
+		/**
+		 * Replace a queued group value write or response with the newer frame for the same group address, discard
+		 * the oldest frame if there is no such frame queued.
+		 */
+		Coalesce
+	}
+
 	private volatile boolean activated = true;
 	private final String id;
 	private final String netif;
@@ -62,6 +79,14 @@ public class DefaultServiceContainer implements ServiceContainer
 	private volatile Duration disruptionBufferTimeout;
 	private volatile int disruptionBufferLowerPort;
 	private volatile int disruptionBufferUpperPort;
+	private volatile int disruptionBufferCapacity = 350;
+	private volatile Path disruptionBufferLog;
+	private volatile int disruptionBufferLogSegmentSize = 1 << 20;
+	private volatile int disruptionBufferLogSegments = 4;
+	private volatile int clientQueueCapacity = 0;
+	private volatile OverflowPolicy clientQueueOverflowPolicy = OverflowPolicy.DropOldest;
+	private volatile int eventQueueCapacity = 1000;
+	private volatile boolean sharedDataEndpoint;
 
 	/**
 	 * Creates a new service container with the supplied parameters. The control endpoint of this
@@ -155,12 +180,31 @@ public class DefaultServiceContainer implements ServiceContainer
 	}
 
 	public void setDisruptionBuffer(final Duration expirationTimeout, final int lowerPort, final int upperPort)
+	{
+		setDisruptionBuffer(expirationTimeout, lowerPort, upperPort, disruptionBufferCapacity);
+	}
+
+	/**
+	 * Sets the disruption buffer, which replays missed KNX subnet frames to a client after its connection got
+	 * disrupted and was reestablished.
+	 *
+	 * @param expirationTimeout time to keep the state of a disrupted connection, {@link Duration#ZERO} disables the
+	 *        disruption buffer
+	 * @param lowerPort lower bound of the client UDP port range the disruption buffer is used for
+	 * @param upperPort upper bound of the client UDP port range the disruption buffer is used for
+	 * @param capacity maximum number of buffered frames, <code>capacity &gt; 0</code>
+	 */
+	public void setDisruptionBuffer(final Duration expirationTimeout, final int lowerPort, final int upperPort,
+		final int capacity)
 	{
 		if (expirationTimeout.isNegative())
 			throw new KNXIllegalArgumentException("disruption buffer timeout " + expirationTimeout + " < 0");
+		if (capacity <= 0)
+			throw new KNXIllegalArgumentException("disruption buffer capacity " + capacity + " <= 0");
 		disruptionBufferTimeout = expirationTimeout;
 		disruptionBufferLowerPort = lowerPort;
 		disruptionBufferUpperPort = upperPort;
+		disruptionBufferCapacity = capacity;
 	}
 
 	public final Duration disruptionBufferTimeout()
@@ -172,4 +216,107 @@ public class DefaultServiceContainer implements ServiceContainer
 	{
 		return new int[] { disruptionBufferLowerPort, disruptionBufferUpperPort };
 	}
+
+	public final int disruptionBufferCapacity()
+	{
+		return disruptionBufferCapacity;
+	}
+
+	/**
+	 * Sets a persistent, memory-mapped log for the disruption buffer, so that clients reconnecting after a server
+	 * restart still get missed frames replayed. The log consists of size-bounded segment files, the oldest segment is
+	 * deleted when the maximum number of segments is reached.
+	 *
+	 * @param directory directory of the log files of this service container, <code>null</code> disables the log
+	 * @param segmentSize maximum segment file size in bytes, <code>segmentSize &ge; 4096</code>
+	 * @param segments maximum number of segment files, <code>segments &gt; 0</code>
+	 */
+	public void setDisruptionBufferLog(final Path directory, final int segmentSize, final int segments)
+	{
+		if (segmentSize < 4096)
+			throw new KNXIllegalArgumentException("disruption buffer log segment size " + segmentSize + " < 4096");
+		if (segments <= 0)
+			throw new KNXIllegalArgumentException("disruption buffer log segments " + segments + " <= 0");
+		disruptionBufferLog = directory;
+		disruptionBufferLogSegmentSize = segmentSize;
+		disruptionBufferLogSegments = segments;
+	}
+
+	public final Optional<Path> disruptionBufferLog()
+	{
+		return Optional.ofNullable(disruptionBufferLog);
+	}
+
+	public final int disruptionBufferLogSegmentSize()
+	{
+		return disruptionBufferLogSegmentSize;
+	}
+
+	public final int disruptionBufferLogSegments()
+	{
+		return disruptionBufferLogSegments;
+	}
+
+	/**
+	 * Sets the outbound queue used for each client connection of this service container. Frames to a client are
+	 * sent in order from the client queue, so that a slow client connection does not delay other connections. By
+	 * default, frames are sent directly without queuing.
+	 *
+	 * @param capacity maximum number of frames queued for a client connection, <code>0</code> sends frames
+	 *        directly without queuing
+	 * @param overflowPolicy the policy applied if a client queue is full
+	 */
+	public void setClientQueue(final int capacity, final OverflowPolicy overflowPolicy)
+	{
+		if (capacity < 0)
+			throw new KNXIllegalArgumentException("client queue capacity " + capacity + " < 0");
+		clientQueueCapacity = capacity;
+		clientQueueOverflowPolicy = overflowPolicy;
+	}
+
+	public final int clientQueueCapacity()
+	{
+		return clientQueueCapacity;
+	}
+
+	public final OverflowPolicy clientQueueOverflowPolicy()
+	{
+		return clientQueueOverflowPolicy;
+	}
+
+	/**
+	 * Sets the capacity of the gateway event queues buffering frames received from the KNX subnet and from the
+	 * KNXnet/IP clients of this service container, before the frames get dispatched.
+	 *
+	 * @param capacity maximum number of buffered frame events, <code>capacity &gt; 0</code>
+	 */
+	public void setEventQueueCapacity(final int capacity)
+	{
+		if (capacity <= 0)
+			throw new KNXIllegalArgumentException("event queue capacity " + capacity + " <= 0");
+		eventQueueCapacity = capacity;
+	}
+
+	public final int eventQueueCapacity()
+	{
+		return eventQueueCapacity;
+	}
+
+	/**
+	 * Sets whether all tunneling and device management connections of this service container share one data endpoint
+	 * (UDP socket), instead of using a data endpoint for each connection. Received frames are routed to the connection
+	 * by the channel ID. This setting does not apply if the control endpoint is reused for connections.
+	 *
+	 * @param shared <code>true</code> to use a shared data endpoint, <code>false</code> for a data endpoint per
+	 *        connection (default)
+	 */
+	public void setSharedDataEndpoint(final boolean shared)
+	{
+		sharedDataEndpoint = shared;
+	}
+
+	public final boolean sharedDataEndpoint()
+	{
+		return sharedDataEndpoint;
+	}
 }
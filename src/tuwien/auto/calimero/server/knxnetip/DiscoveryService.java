@@ -56,23 +56,20 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
-import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import tuwien.auto.calimero.KNXFormatException;
 import tuwien.auto.calimero.device.ios.InterfaceObject;
 import tuwien.auto.calimero.knxnetip.Discoverer;
 import tuwien.auto.calimero.knxnetip.servicetype.KNXnetIPHeader;
-import tuwien.auto.calimero.knxnetip.servicetype.PacketHelper;
 import tuwien.auto.calimero.knxnetip.servicetype.SearchRequest;
-import tuwien.auto.calimero.knxnetip.servicetype.SearchResponse;
 import tuwien.auto.calimero.knxnetip.util.DIB;
-import tuwien.auto.calimero.knxnetip.util.DeviceDIB;
 import tuwien.auto.calimero.knxnetip.util.HPAI;
 import tuwien.auto.calimero.knxnetip.util.ServiceFamiliesDIB;
 import tuwien.auto.calimero.knxnetip.util.Srp;
 import tuwien.auto.calimero.knxnetip.util.Srp.Type;
 import tuwien.auto.calimero.mgmt.PropertyAccess.PID;
+import tuwien.auto.calimero.server.LocalAddresses;
 import tuwien.auto.calimero.server.knxnetip.KNXnetIPServer.Endpoint;
 
 final class DiscoveryService extends ServiceLooper
@@ -80,11 +77,14 @@ final class DiscoveryService extends ServiceLooper
 	private static final InetAddress systemSetupMulticast = KNXnetIPServer.defRoutingMulticast;
 
 	private final NetworkInterface[] outgoing;
+	private final Set<String> outgoingNames;
 
 	DiscoveryService(final KNXnetIPServer server, final NetworkInterface[] outgoing, final NetworkInterface[] joinOn)
 	{
 		super(server, null, 512, 0);
 		this.outgoing = outgoing;
+		outgoingNames = outgoing == null ? Set.of()
+				: Arrays.stream(outgoing).map(NetworkInterface::getName).collect(Collectors.toSet());
 		s = createSocket(joinOn);
 	}
 
@@ -166,6 +166,8 @@ final class DiscoveryService extends ServiceLooper
 	{
 		final int svc = h.getServiceType();
 		if (svc == KNXnetIPHeader.SEARCH_REQ || svc == KNXnetIPHeader.SearchRequest) {
+			if (!server.searchRequests().tryAcquire(src))
+				return true;
 			// A request for TCP communication or a request using an unsupported
 			// protocol version should result in a host protocol type error.
 			// But since there is no status field in the search response, we log and ignore such requests.
@@ -253,19 +255,12 @@ final class DiscoveryService extends ServiceLooper
 				}
 			}
 
-			final Set<Integer> set = new TreeSet<>();
-			for (final byte dibType : requestedDibs)
-				set.add(dibType & 0xff);
-			final List<DIB> dibs = new ArrayList<>();
-			set.forEach(dibType -> ces.createDib(dibType, dibs, ext));
-
-			final HPAI hpai = new HPAI(HPAI.IPV4_UDP, local);
-			final byte[] buf = PacketHelper.toPacket(new SearchResponse(ext, hpai, dibs));
+			final byte[] buf = ces.searchResponse(local, ext, requestedDibs);
 			final DatagramPacket p = new DatagramPacket(buf, buf.length, dst);
-			logger.trace("sending search response with container '" + sc.getName() + "' to " + dst);
+			logger.trace("sending search response with container '{}' to {}", sc.getName(), dst);
 			sendOnInterfaces(p);
-			final DeviceDIB deviceDib = server.createDeviceDIB(sc);
-			logger.debug("KNXnet/IP discovery: identify as '{}' to {}", deviceDib.getName(), dst);
+			if (logger.isDebugEnabled())
+				logger.debug("KNXnet/IP discovery: identify as '{}' to {}", server.createDeviceDIB(sc).getName(), dst);
 		}
 	}
 
@@ -275,19 +270,17 @@ final class DiscoveryService extends ServiceLooper
 			s.send(p);
 			return;
 		}
-		final List<NetworkInterface> nifs = outgoing.length > 0 ? Arrays.asList(outgoing)
-				: Collections.list(NetworkInterface.getNetworkInterfaces());
 		final var sentOn = new ArrayList<String>();
-		for (final NetworkInterface nif : nifs) {
-			if (nif.getInetAddresses().hasMoreElements() && nif.isUp()) {
-				try {
-					((MulticastSocket) s).setNetworkInterface(nif);
-					s.send(p);
-					sentOn.add(nameOf(nif));
-				}
-				catch (final SocketException e) {
-					logger.info("failure sending on interface " + nameOf(nif));
-				}
+		for (final NetworkInterface nif : LocalAddresses.interfacesUp()) {
+			if (outgoing.length > 0 && !outgoingNames.contains(nif.getName()))
+				continue;
+			try {
+				((MulticastSocket) s).setNetworkInterface(nif);
+				s.send(p);
+				sentOn.add(nameOf(nif));
+			}
+			catch (final SocketException e) {
+				logger.info("failure sending on interface " + nameOf(nif));
 			}
 		}
 		logger.trace("sent search response on interfaces {}", sentOn);
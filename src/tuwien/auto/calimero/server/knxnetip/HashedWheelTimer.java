@@ -0,0 +1,227 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.server.ServerExecutors;
+
+/**
+ * Hashed-wheel timer shared by the server endpoints for connection, session, and similar timeouts. Scheduling and
+ * extending a timeout is O(1) and does not involve the timer thread: extending only updates the deadline, which the
+ * timer evaluates once the previous deadline is reached. Expired timeouts fire within one tick of their deadline.
+ * Timeout tasks run on a separate executor, so a blocking task (e.g., closing a connection) does not delay others.
+ */
+final class HashedWheelTimer implements Runnable {
+	private static final Duration DefaultTick = Duration.ofMillis(100);
+	static final int WheelSize = 512; // 51.2 s per revolution with the default tick
+
+	private static final Logger logger = LoggerFactory.getLogger("calimero.server.knxnetip.HashedWheelTimer");
+
+	private static HashedWheelTimer instance;
+
+	// buckets are only accessed by the timer thread
+	private final Timeout[] wheel = new Timeout[WheelSize];
+	private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+	private final ExecutorService executor = ServerExecutors.newCachedPool("timeout");
+	private final long startTime = System.nanoTime();
+	private final long tickDuration; // [ns]
+	private long tick;
+
+	final class Timeout {
+		private final Runnable task;
+		private volatile long deadline; // [ns], relative to timer start
+		private volatile boolean cancelled;
+		// set once the task got submitted, until the timeout is rescheduled
+		private volatile boolean expired;
+
+		// owned by the timer thread
+		private Timeout prev;
+		private Timeout next;
+		private int bucket = -1;
+
+		private Timeout(final Runnable task, final long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Sets a new deadline relative to now. A later deadline is picked up lazily without notifying the timer, an
+		 * earlier deadline is rescheduled, as is a timeout which already expired.
+		 *
+		 * @param delay new delay from now
+		 */
+		void reschedule(final Duration delay) {
+			final long previous = deadline;
+			deadline = now() + delay.toNanos();
+			if (deadline < previous || expired)
+				pending.add(this);
+		}
+
+		void cancel() {
+			cancelled = true;
+		}
+	}
+
+	static synchronized HashedWheelTimer instance() {
+		if (instance == null)
+			instance = new HashedWheelTimer(DefaultTick);
+		return instance;
+	}
+
+	HashedWheelTimer(final Duration tick) {
+		tickDuration = tick.toNanos();
+		final Thread thread = ServerExecutors.threadFactory("timer wheel").newThread(this);
+		thread.start();
+	}
+
+	/**
+	 * Schedules a task to run once after the specified delay, unless the returned timeout is cancelled or rescheduled.
+	 *
+	 * @param task task to run
+	 * @param delay delay from now
+	 * @return timeout handle
+	 */
+	Timeout schedule(final Runnable task, final Duration delay) {
+		final Timeout timeout = new Timeout(task, now() + delay.toNanos());
+		pending.add(timeout);
+		return timeout;
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			final long tickDeadline = (tick + 1) * tickDuration;
+			long sleep = tickDeadline - now();
+			while (sleep > 0) {
+				try {
+					Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+				}
+				catch (final InterruptedException e) {
+					return;
+				}
+				sleep = tickDeadline - now();
+			}
+
+			addPending();
+			final int idx = (int) (tick % WheelSize);
+			Timeout t = wheel[idx];
+			while (t != null) {
+				final Timeout next = t.next;
+				if (t.cancelled)
+					remove(t);
+				else if (t.deadline <= tickDeadline) {
+					remove(t);
+					expire(t);
+				}
+				else
+					insert(t); // deadline got extended, or is more than one revolution away
+				t = next;
+			}
+			tick++;
+		}
+	}
+
+	private void addPending() {
+		for (Timeout t = pending.poll(); t != null; t = pending.poll()) {
+			if (t.cancelled)
+				remove(t);
+			else {
+				t.expired = false;
+				insert(t);
+			}
+		}
+	}
+
+	// inserts or moves a timeout to the bucket of its deadline
+	private void insert(final Timeout t) {
+		// never schedule into the current (or past) tick, it is processed already
+		final long ticks = Math.max(t.deadline / tickDuration, tick + 1);
+		final int idx = (int) (ticks % WheelSize);
+		if (t.bucket == idx)
+			return;
+		remove(t);
+		t.bucket = idx;
+		t.next = wheel[idx];
+		if (t.next != null)
+			t.next.prev = t;
+		wheel[idx] = t;
+	}
+
+	private void remove(final Timeout t) {
+		if (t.bucket == -1)
+			return;
+		if (t.prev != null)
+			t.prev.next = t.next;
+		else
+			wheel[t.bucket] = t.next;
+		if (t.next != null)
+			t.next.prev = t.prev;
+		t.prev = null;
+		t.next = null;
+		t.bucket = -1;
+	}
+
+	private void expire(final Timeout t) {
+		t.expired = true;
+		try {
+			executor.execute(() -> {
+				try {
+					t.task.run();
+				}
+				catch (final RuntimeException e) {
+					logger.error("timeout task {}", t.task, e);
+				}
+			});
+		}
+		catch (final RejectedExecutionException e) {
+			logger.warn("timeout task {} rejected", t.task, e);
+		}
+	}
+
+	private long now() {
+		return System.nanoTime() - startTime;
+	}
+}
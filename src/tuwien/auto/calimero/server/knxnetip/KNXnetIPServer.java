@@ -40,6 +40,7 @@ import static tuwien.auto.calimero.device.ios.InterfaceObject.DEVICE_OBJECT;
 import static tuwien.auto.calimero.device.ios.InterfaceObject.KNXNETIP_PARAMETER_OBJECT;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
@@ -219,6 +220,19 @@ public class KNXnetIPServer
 
 	// KNX endpoint and connection stuff
 
+	// number of selector threads multiplexing the UDP control and data endpoints, 0 for a looper thread per endpoint
+	private volatile int udpSelectors;
+	private UdpMultiplexer udpMultiplexer;
+	// serve tcp connections of all control endpoints with the non-blocking tcp event loop
+	private volatile boolean tcpEventLoop;
+
+	// accepted search, connect, and session requests [requests/s], 0 for no limit
+	private int requestRatePerSource = 0;
+	private int requestRateGlobal = 0;
+	private volatile RequestRateLimiter searchRequests;
+	private volatile RequestRateLimiter connectRequests;
+	private volatile RequestRateLimiter sessionRequests;
+
 	// true to enable multicast loopback, false to disable loopback
 	// used in KNXnet/IP Routing
 	private boolean multicastLoopback = true;
@@ -354,6 +368,7 @@ public class KNXnetIPServer
 				Settings.getLibraryVersion(), friendlyName);
 
 		ios.addServerListener(this::onPropertyValueChanged);
+		createRequestRateLimiters();
 
 		// server KNX device address, since we don't know about routing at this time
 		// address is always 15.15.0; might be updated later or by routing configuration
@@ -575,6 +590,34 @@ public class KNXnetIPServer
 	 */
 	public static final String OPTION_OUTGOING_INTERFACE = "discovery.outoingInterface";
 
+	/**
+	 * Option for KNXnet/IP server UDP transport: the number of selector threads multiplexing the UDP control and data
+	 * endpoints of all service containers.
+	 * <p>
+	 * With the default value <code>0</code>, every endpoint uses its own looper thread blocking on its socket. A value
+	 * &gt; 0 uses non-blocking datagram channels served by that number of selector threads, which avoids a thread per
+	 * tunneling or device management connection. This setting is queried on start of an endpoint.<br>
+	 * Use this option key with {@link #setOption(String, String)}.
+	 */
+	public static final String OPTION_UDP_SELECTORS = "udp.selectors";
+
+	/**
+	 * Option for KNXnet/IP server TCP transport: use (<code>true</code>) a shared non-blocking event loop for all TCP
+	 * endpoints and connections, or (<code>false</code>, the default) a thread for each TCP endpoint and connection.
+	 * This setting is queried on start of a control endpoint.<br>
+	 * Use this option key with {@link #setOption(String, String)}.
+	 */
+	public static final String OPTION_TCP_EVENT_LOOP = "tcp.eventLoop";
+
+	/**
+	 * Option for KNXnet/IP server request flood protection: the maximum rate of search, connect, and secure session
+	 * requests, formatted as <code>"perSource/global"</code> in requests per second, e.g., <code>"50/500"</code>. Each
+	 * request type is limited separately; a source may burst up to twice its rate. Requests exceeding a limit are
+	 * dropped before being parsed. A rate of <code>0</code> disables that limit; by default, no limit is set.<br>
+	 * Use this option key with {@link #setOption(String, String)}.
+	 */
+	public static final String OPTION_REQUEST_RATE_LIMIT = "requests.rateLimit";
+
 	synchronized String getOption(final String optionKey)
 	{
 		if (OPTION_DISCOVERY_DESCRIPTION.equals(optionKey)) {
@@ -589,6 +632,15 @@ public class KNXnetIPServer
 		if (OPTION_OUTGOING_INTERFACE.equals(optionKey)) {
 			return join(outgoingIf, NetworkInterface::getName, ",");
 		}
+		if (OPTION_UDP_SELECTORS.equals(optionKey)) {
+			return Integer.toString(udpSelectors);
+		}
+		if (OPTION_TCP_EVENT_LOOP.equals(optionKey)) {
+			return Boolean.toString(tcpEventLoop);
+		}
+		if (OPTION_REQUEST_RATE_LIMIT.equals(optionKey)) {
+			return requestRatePerSource + "/" + requestRateGlobal;
+		}
 		logger.warn("option \"" + optionKey + "\" not supported or unknown");
 		throw new KNXIllegalArgumentException("unknown KNXnet/IP server option " + optionKey);
 	}
@@ -616,6 +668,30 @@ public class KNXnetIPServer
 		else if (OPTION_OUTGOING_INTERFACE.equals(optionKey)) {
 			outgoingIf = parseNetworkInterfaces(optionKey, value);
 		}
+		else if (OPTION_UDP_SELECTORS.equals(optionKey)) {
+			try {
+				udpSelectors = Math.max(0, Integer.parseInt(value));
+			}
+			catch (final NumberFormatException e) {
+				logger.error("option " + optionKey + ": invalid number of selector threads '" + value + "'");
+			}
+		}
+		else if (OPTION_TCP_EVENT_LOOP.equals(optionKey)) {
+			tcpEventLoop = Boolean.valueOf(value).booleanValue();
+		}
+		else if (OPTION_REQUEST_RATE_LIMIT.equals(optionKey)) {
+			try {
+				final String[] split = value.split("/", -1);
+				if (split.length != 2)
+					throw new NumberFormatException();
+				requestRatePerSource = Math.max(0, Integer.parseInt(split[0].trim()));
+				requestRateGlobal = Math.max(0, Integer.parseInt(split[1].trim()));
+				createRequestRateLimiters();
+			}
+			catch (final NumberFormatException e) {
+				logger.error("option " + optionKey + ": invalid request rate limit '" + value + "'");
+			}
+		}
 		else
 			logger.warn("option \"" + optionKey + "\" not supported or unknown");
 	}
@@ -647,6 +723,7 @@ public class KNXnetIPServer
 			if (users == 0)
 				throw new KnxSecureException("user 1 is mandatory, but not configured");
 			ios.setProperty(knxObject, objectInstance, SecureSession.pidUserPwdHashes, 1, users, userPwdHashes);
+			SessionHandshakes.prepare();
 		}
 
 		final byte[] groupKey = keys.get("group.key");
@@ -771,6 +848,9 @@ public class KNXnetIPServer
 		stopDiscoveryService();
 
 		endpoints.forEach(Endpoint::stop);
+		if (udpMultiplexer != null)
+			udpMultiplexer.close();
+		udpMultiplexer = null;
 
 		inShutdown = false;
 		running = false;
@@ -792,11 +872,70 @@ public class KNXnetIPServer
 				.orElse(Map.of());
 	}
 
+	boolean multiplexUdp() {
+		return udpSelectors > 0;
+	}
+
+	boolean tcpEventLoop() {
+		return tcpEventLoop;
+	}
+
+	RequestRateLimiter searchRequests() {
+		return searchRequests;
+	}
+
+	RequestRateLimiter connectRequests() {
+		return connectRequests;
+	}
+
+	RequestRateLimiter sessionRequests() {
+		return sessionRequests;
+	}
+
+	/**
+	 * @return statistics of search, connect, and secure session requests dropped due to exceeding the request rate
+	 *         limit
+	 */
+	public String droppedRequests() {
+		return searchRequests + ", " + connectRequests + ", " + sessionRequests;
+	}
+
+	/**
+	 * Returns the number of datagrams dropped by multiplexed UDP endpoints, because the socket send buffer was full.
+	 *
+	 * @return number of dropped datagrams
+	 */
+	public long droppedDatagrams() {
+		return UdpMultiplexer.droppedDatagrams();
+	}
+
+	private synchronized void createRequestRateLimiters() {
+		searchRequests = new RequestRateLimiter("search", logger, requestRatePerSource, requestRateGlobal);
+		connectRequests = new RequestRateLimiter("connect", logger, requestRatePerSource, requestRateGlobal);
+		sessionRequests = new RequestRateLimiter("session", logger, requestRatePerSource, requestRateGlobal);
+	}
+
+	synchronized UdpMultiplexer udpMultiplexer() throws IOException {
+		if (udpMultiplexer == null) {
+			udpMultiplexer = new UdpMultiplexer(this, udpSelectors);
+			logger.info("multiplex UDP endpoints using {} selector threads", udpSelectors);
+		}
+		return udpMultiplexer;
+	}
+
 	private int lastOverflowToKnx = 0;
 
+	// properties encoded in the DIBs of search responses
+	private static final Set<Integer> searchResponseProperties = Set.of(PID.FRIENDLY_NAME, PID.PROGMODE,
+			PID.PROJECT_INSTALLATION_ID, PID.SERIAL_NUMBER, PID.KNX_INDIVIDUAL_ADDRESS, PID.ROUTING_MULTICAST_ADDRESS,
+			PID.MAC_ADDRESS, PID.KNXNETIP_DEVICE_CAPABILITIES, PID.MEDIUM_STATUS, 69 /* max. local APDU length */,
+			SecureSession.pidSecuredServices);
+
 	private void onPropertyValueChanged(final PropertyEvent pe)
 	{
 		final InterfaceObject io = pe.getInterfaceObject();
+		if (searchResponseProperties.contains(pe.getPropertyId()))
+			endpoints.forEach(ep -> ep.controlEndpoint().ifPresent(ControlEndpointService::invalidateSearchResponses));
 		if (pe.getPropertyId() == PID.QUEUE_OVERFLOW_TO_KNX) {
 			final byte[] data = pe.getNewData();
 			final int overflow = toInt(data);
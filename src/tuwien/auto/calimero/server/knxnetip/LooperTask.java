@@ -46,20 +46,12 @@ import org.slf4j.Logger;
 
 import tuwien.auto.calimero.log.LogService;
 import tuwien.auto.calimero.log.LogService.LogLevel;
+import tuwien.auto.calimero.server.ServerExecutors;
 
 // interrupt policy: cleanup and exit
 class LooperTask implements Runnable {
-	private static final ScheduledThreadPoolExecutor looperPool = new ScheduledThreadPoolExecutor(Integer.MAX_VALUE,
-		r -> {
-			final Thread t = new Thread(r, "looper thread");
-			t.setDaemon(true);
-			return t;
-		});
-
-	static {
-		looperPool.setKeepAliveTime(30, TimeUnit.SECONDS);
-		looperPool.allowCoreThreadTimeOut(true);
-	}
+	private static final ScheduledThreadPoolExecutor looperPool = ServerExecutors.newScheduledPool("looper thread",
+			Integer.MAX_VALUE);
 
 	public static void execute(final LooperTask task) {
 		task.scheduledFuture = looperPool.schedule(task, 0, TimeUnit.SECONDS);
@@ -0,0 +1,147 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+
+/**
+ * Limits the rate of requests of one kind (e.g., search requests) using token buckets, one for each source address
+ * and one global bucket shared by all sources. A request is only accepted if both the bucket of its source and the
+ * global bucket provide a token. Checks are cheap and done before parsing a request; rejected requests are counted.
+ */
+final class RequestRateLimiter {
+	// limit the number of tracked sources, flooding with spoofed source addresses is left to the global bucket
+	private static final int MaxSources = 4096;
+	private static final long EvictionInterval = 1_000_000_000L; // [ns]
+	private static final long WarningInterval = 10_000_000_000L; // [ns]
+
+	private static final class Bucket {
+		private final double rate; // [tokens/ns]
+		private final double burst;
+		private double tokens;
+		private long lastRefill = System.nanoTime();
+		private volatile long lastWarning = System.nanoTime() - WarningInterval;
+
+		Bucket(final int perSecond) {
+			rate = perSecond / 1e9;
+			burst = 2 * perSecond;
+			tokens = burst;
+		}
+
+		synchronized boolean tryAcquire(final long now) {
+			tokens = Math.min(burst, tokens + (now - lastRefill) * rate);
+			lastRefill = now;
+			if (tokens < 1)
+				return false;
+			tokens--;
+			return true;
+		}
+
+		synchronized boolean idle(final long now) {
+			return tokens + (now - lastRefill) * rate >= burst;
+		}
+
+		// rate limit our own warnings, too
+		boolean warn(final long now) {
+			if (now - lastWarning < WarningInterval)
+				return false;
+			lastWarning = now;
+			return true;
+		}
+	}
+
+	private final String kind;
+	private final Logger logger;
+	private final int perSource;
+	private final Bucket global;
+	private final Map<InetAddress, Bucket> sources = new ConcurrentHashMap<>();
+	private volatile long lastEviction;
+
+	private final LongAdder droppedPerSource = new LongAdder();
+	private final LongAdder droppedGlobal = new LongAdder();
+
+	/**
+	 * @param kind kind of request, used in log output
+	 * @param logger logger
+	 * @param perSource accepted requests per second and source address, <code>0</code> for no limit
+	 * @param global accepted requests per second from all sources, <code>0</code> for no limit
+	 */
+	RequestRateLimiter(final String kind, final Logger logger, final int perSource, final int global) {
+		this.kind = kind;
+		this.logger = logger;
+		this.perSource = perSource;
+		this.global = global > 0 ? new Bucket(global) : null;
+	}
+
+	boolean tryAcquire(final InetAddress src) {
+		final long now = System.nanoTime();
+		if (perSource > 0) {
+			Bucket bucket = sources.get(src);
+			if (bucket == null) {
+				if (sources.size() >= MaxSources && now - lastEviction >= EvictionInterval) {
+					lastEviction = now;
+					sources.values().removeIf(b -> b.idle(now));
+				}
+				bucket = sources.size() < MaxSources ? sources.computeIfAbsent(src, __ -> new Bucket(perSource)) : null;
+			}
+			if (bucket != null && !bucket.tryAcquire(now)) {
+				droppedPerSource.increment();
+				if (bucket.warn(now))
+					logger.warn("{} requests from {} exceed {}/s, dropping", kind, src.getHostAddress(), perSource);
+				return false;
+			}
+		}
+		if (global != null && !global.tryAcquire(now)) {
+			droppedGlobal.increment();
+			if (global.warn(now))
+				logger.warn("{} requests exceed global limit, dropping", kind);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return kind + " dropped " + droppedPerSource.sum() + " (source limit), " + droppedGlobal.sum() + " (global limit)";
+	}
+}
@@ -40,7 +40,6 @@ import static tuwien.auto.calimero.DataUnitBuilder.toHex;
 
 import java.io.IOException;
 import java.math.BigInteger;
-import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -51,7 +50,6 @@ import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyFactory;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
@@ -67,6 +65,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyAgreement;
@@ -90,7 +89,7 @@ import tuwien.auto.calimero.knxnetip.servicetype.KNXnetIPHeader;
 final class SecureSession {
 
 	private static final int SecureSvc = 0x0950;
-	private static final int SessionReq = 0x0951; // 1. client -> server
+	static final int SessionReq = 0x0951; // 1. client -> server
 	private static final int SessionRes = 0x0952; // 2. server -> client
 	private static final int SessionAuth = 0x0953; // 3. client -> server
 	private static final int SessionStatus = 0x0954; // 4. server -> client
@@ -129,6 +128,7 @@ final class SecureSession {
 		private final AtomicLong connectionCount = new AtomicLong();
 		final AtomicLong sendSeq = new AtomicLong();
 		private volatile long lastUpdate = System.nanoTime() / 1_000_000;
+		private volatile HashedWheelTimer.Timeout timeout;
 
 		private Session(final int sessionId, final InetSocketAddress client, final Key secretKey) {
 			this.client = client;
@@ -150,15 +150,28 @@ final class SecureSession {
 	}
 
 	boolean acceptService(final KNXnetIPHeader h, final byte[] data, final int offset, final InetSocketAddress remote,
-		final Object svcHandler) throws KNXFormatException, IOException {
+		final ControlEndpointService ces) throws KNXFormatException, IOException {
+		return acceptService(h, data, offset, remote, ces, channelId -> null);
+	}
+
+	/**
+	 * Accepts a secure data packet, the data connection is resolved by the channel ID of the decrypted packet.
+	 */
+	boolean acceptService(final KNXnetIPHeader h, final byte[] data, final int offset, final InetSocketAddress remote,
+		final IntFunction<DataEndpoint> dataEndpoints) throws KNXFormatException, IOException {
+		return acceptService(h, data, offset, remote, null, dataEndpoints);
+	}
+
+	private boolean acceptService(final KNXnetIPHeader h, final byte[] data, final int offset,
+		final InetSocketAddress remote, final ControlEndpointService ces, final IntFunction<DataEndpoint> dataEndpoints)
+		throws KNXFormatException, IOException {
 
 		int sessionId = 0;
 		try {
 			if (h.getServiceType() == SessionReq) {
-				final ByteBuffer res = establishSession(remote, h, data, offset);
-				send(res.array(), remote);
-				final int size = sessions.size();
-				logger.trace("{} session{} currently open {}", size, size == 1 ? "" : "s", sessions.keySet());
+				// the key agreement runs off the endpoint thread, and the receive buffer gets reused
+				final byte[] clientKey = Arrays.copyOfRange(data, offset + 8, h.getTotalLength());
+				SessionHandshakes.submit(remote.getAddress(), () -> handshake(remote, clientKey));
 				return true;
 			}
 			if (h.getServiceType() == SecureSvc) {
@@ -177,8 +190,9 @@ final class SecureSession {
 				final byte[] knxipPacket = (byte[]) fields[4];
 
 				final KNXnetIPHeader svcHeader = new KNXnetIPHeader(knxipPacket, 0);
-				logger.debug("received session {} seq {} (S/N {} tag {}) {}: {}", sid, seq, sno, tag, svcHeader,
-						toHex(knxipPacket, " "));
+				if (logger.isDebugEnabled())
+					logger.debug("received session {} seq {} (S/N {} tag {}) {}: {}", sid, seq, sno, tag, svcHeader,
+							toHex(knxipPacket, " "));
 				session.lastUpdate = System.nanoTime() / 1_000_000L;
 
 				if (svcHeader.getServiceType() == SessionAuth) {
@@ -223,15 +237,20 @@ final class SecureSession {
 					}
 					// forward to service handler
 					final int start = svcHeader.getStructLength();
-					if (svcHandler instanceof ControlEndpointService) {
+					if (ces != null) {
 						if (svcHeader.getServiceType() == KNXnetIPHeader.CONNECT_REQ) {
 							connections.put(remote, sessionId);
 						}
-						final ControlEndpointService ces = (ControlEndpointService) svcHandler;
 						return ces.acceptControlService(sessionId, svcHeader, knxipPacket, start, remote.getAddress(), remote.getPort());
 					}
-					else
-						return ((DataEndpoint) svcHandler).acceptDataService(svcHeader, knxipPacket, start);
+					final int channelId = SharedDataEndpointService.channelId(svcHeader, knxipPacket, start);
+					final DataEndpoint endpoint = dataEndpoints.apply(channelId);
+					if (endpoint == null || endpoint.sessionId() != sessionId) {
+						logger.warn("session {}: {} for unknown data connection (channel {}) - ignored", sessionId,
+								svcHeader, channelId);
+						return true;
+					}
+					return endpoint.acceptDataService(svcHeader, knxipPacket, start);
 				}
 				return true;
 			}
@@ -284,17 +303,27 @@ final class SecureSession {
 
 	private void send(final byte[] data, final InetSocketAddress address) throws IOException {
 		if (!TcpLooper.send(data, address))
-			socket.send(new DatagramPacket(data, data.length, address));
+			UdpMultiplexer.send(socket, data, address);
 	}
 
-	private ByteBuffer establishSession(final InetSocketAddress remote, final KNXnetIPHeader h, final byte[] data, final int offset) {
+	private void handshake(final InetSocketAddress remote, final byte[] clientKey) {
+		try {
+			final ByteBuffer res = establishSession(remote, clientKey);
+			send(res.array(), remote);
+			final int size = sessions.size();
+			logger.trace("{} session{} currently open {}", size, size == 1 ? "" : "s", sessions.keySet());
+		}
+		catch (IOException | RuntimeException e) {
+			logger.error("error establishing secure session for {}", remote, e);
+		}
+	}
 
-		final byte[] clientKey = Arrays.copyOfRange(data, offset + 8, h.getTotalLength());
+	private ByteBuffer establishSession(final InetSocketAddress remote, final byte[] clientKey) {
 		final byte[] publicKey;
 		final byte[] sharedSecret;
 
 		try {
-			final KeyPair keyPair = generateKeyPair();
+			final KeyPair keyPair = SessionHandshakes.keyPair();
 
 			final BigInteger u = ((XECPublicKey) keyPair.getPublic()).getU();
 			final var tmp = u.toByteArray();
@@ -315,6 +344,8 @@ final class SecureSession {
 		final Session session = new Session(sessionId, remote, secretKey);
 		session.xorClientServer = xor(clientKey, 0, publicKey, 0, keyLength);
 		sessions.put(sessionId, session);
+		session.timeout = HashedWheelTimer.instance().schedule(() -> checkSessionTimeout(sessionId, session),
+				sessionTimeout);
 		logger.debug("establish secure session {} for {}", sessionId, remote);
 
 		return sessionResponse(sessionId, publicKey, clientKey);
@@ -420,18 +451,19 @@ final class SecureSession {
 
 	private static final Duration sessionTimeout = Duration.ofSeconds(60);
 
-	void closeDormantSessions() {
-		sessions.forEach(this::checkSessionTimeout);
-	}
-
 	// if we don't receive a valid secure packet for 60 seconds, we close the session (and any open connections)
 	private void checkSessionTimeout(final int sessionId, final Session session) {
+		// session got closed in the meantime
+		if (sessions.get(sessionId) != session)
+			return;
 		final long now = System.nanoTime() / 1_000_000;
 		final Duration dormant = Duration.ofMillis(now - session.lastUpdate);
 		if (dormant.compareTo(sessionTimeout) > 0) {
 			logger.info("secure session {} timed out after {} seconds - close session", sessionId, dormant.toSeconds());
 			sessionTimeout(sessionId, session);
 		}
+		else
+			session.timeout.reschedule(sessionTimeout.minus(dormant).plusMillis(1));
 	}
 
 	private void sessionTimeout(final int sessionId, final Session session) {
@@ -479,28 +511,48 @@ final class SecureSession {
 		SecureConnection.encrypt(mac, 0, secretKey, securityInfo(new byte[16], 0, 0xff00));
 	}
 
+	// AES engines for CBC-MAC calculation, one per thread, and re-initialized with the key of each MAC
+	private static final ThreadLocal<Cipher> cbcCipher = ThreadLocal.withInitial(() -> {
+		try {
+			return Cipher.getInstance("AES/CBC/NoPadding");
+		}
+		catch (final GeneralSecurityException e) {
+			throw new KnxSecureException("platform does not support AES/CBC", e);
+		}
+	});
+	private static final IvParameterSpec zeroIv = new IvParameterSpec(new byte[16]);
+
 	private byte[] cbcMacSimple(final Key secretKey, final byte[] data, final int offset, final int length) {
-		final byte[] log = Arrays.copyOfRange(data, offset, offset + length);
-		logger.trace("authenticating (length {}): {}", length, toHex(log, " "));
+		if (logger.isTraceEnabled())
+			logger.trace("authenticating (length {}): {}", length,
+					toHex(Arrays.copyOfRange(data, offset, offset + length), " "));
 
 		try {
-			final Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
-			final IvParameterSpec ivSpec = new IvParameterSpec(new byte[16]);
-			cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivSpec);
-
-			final byte[] padded = Arrays.copyOfRange(data, offset, (length + 15) / 16 * 16);
-			final byte[] result = cipher.doFinal(padded);
-			final byte[] mac = Arrays.copyOfRange(result, result.length - macSize, result.length);
-			return mac;
+			final byte[] block = cbcMac(secretKey, data, offset, length);
+			return Arrays.copyOfRange(block, 16 - macSize, 16);
 		}
 		catch (final GeneralSecurityException e) {
-			throw new KnxSecureException("calculating CBC-MAC of " + toHex(log, " "), e);
+			throw new KnxSecureException(
+					"calculating CBC-MAC of " + toHex(Arrays.copyOfRange(data, offset, offset + length), " "), e);
 		}
 	}
 
-	private static KeyPair generateKeyPair() throws NoSuchAlgorithmException {
-		final KeyPairGenerator gen = KeyPairGenerator.getInstance("X25519");
-		return gen.generateKeyPair();
+	// returns the last cipher block of the AES-CBC encrypted, zero-padded data
+	static byte[] cbcMac(final Key secretKey, final byte[] data, final int offset, final int length)
+		throws GeneralSecurityException {
+		final Cipher cipher = cbcCipher.get();
+		cipher.init(Cipher.ENCRYPT_MODE, secretKey, zeroIv);
+
+		// the MAC is the last cipher block, so we only keep one block of output
+		final byte[] block = new byte[16];
+		final int last = (length - 1) / 16 * 16;
+		for (int i = 0; i < last; i += 16)
+			cipher.update(data, offset + i, 16, block, 0);
+		// zero-pad the last block
+		final byte[] padded = new byte[16];
+		System.arraycopy(data, offset + last, padded, 0, length - last);
+		cipher.doFinal(padded, 0, 16, block, 0);
+		return block;
 	}
 
 	private static byte[] keyAgreement(final PrivateKey privateKey, final byte[] spk) throws GeneralSecurityException {
@@ -40,6 +40,7 @@ import java.io.IOException;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
 
 import org.slf4j.Logger;
 
@@ -58,12 +59,16 @@ abstract class ServiceLooper extends UdpSocketLooper implements Runnable
 	final Logger logger;
 	boolean useNat;
 
+	private final int socketTimeout;
+	private final CountDownLatch quit = new CountDownLatch(1);
+
 	ServiceLooper(final KNXnetIPServer server, final DatagramSocket socket, final int receiveBufferSize,
 		final int socketTimeout)
 	{
 		super(socket, true, receiveBufferSize, socketTimeout, 0);
 		this.server = server;
 		this.logger = server.logger;
+		this.socketTimeout = socketTimeout;
 	}
 
 	ServiceLooper(final KNXnetIPServer server, final DatagramSocket socket, final boolean closeSocket,
@@ -72,11 +77,16 @@ abstract class ServiceLooper extends UdpSocketLooper implements Runnable
 		super(socket, closeSocket, receiveBufferSize, socketTimeout, 0);
 		this.server = server;
 		this.logger = server.logger;
+		this.socketTimeout = socketTimeout;
 	}
 
 	@Override
 	public void run()
 	{
+		if (UdpMultiplexer.isMultiplexed(s)) {
+			runMultiplexed();
+			return;
+		}
 		try {
 			loop();
 			cleanup(LogLevel.DEBUG, null);
@@ -91,6 +101,39 @@ abstract class ServiceLooper extends UdpSocketLooper implements Runnable
 		}
 	}
 
+	@Override
+	public void quit()
+	{
+		super.quit();
+		if (UdpMultiplexer.isMultiplexed(s))
+			s.close();
+		quit.countDown();
+	}
+
+	// registers the socket channel with the server UDP multiplexer, which then receives on behalf of this looper
+	void multiplex() throws IOException
+	{
+		s.setSoTimeout(socketTimeout);
+		server.udpMultiplexer().register(this);
+	}
+
+	// keeps the blocking looper task semantics: return only after this looper quit
+	private void runMultiplexed()
+	{
+		try {
+			multiplex();
+			quit.await();
+			cleanup(LogLevel.DEBUG, null);
+		}
+		catch (final IOException e) {
+			cleanup(LogLevel.ERROR, e);
+		}
+		catch (final InterruptedException e) {
+			quit();
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	@Override
 	public void onReceive(final InetSocketAddress source, final byte[] data, final int offset, final int length)
 		throws IOException
@@ -0,0 +1,169 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import java.net.InetAddress;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.server.ServerExecutors;
+
+/**
+ * Runs the key agreement of secure session requests on a bounded worker pool shared by all control endpoints, so a
+ * burst of session requests does not block the control endpoint threads. Ephemeral X25519 key pairs are generated in
+ * advance. The number of handshakes in progress is limited for each source address.
+ */
+final class SessionHandshakes {
+	private static final int Workers = Math.min(4, Runtime.getRuntime().availableProcessors());
+	private static final int MaxQueuedHandshakes = 64;
+	private static final int MaxHandshakesPerSource = 2;
+	private static final int PreGeneratedKeyPairs = 16;
+
+	private static final Logger logger = LoggerFactory.getLogger("calimero.server.knxnetip.SessionHandshakes");
+
+	private static final ThreadPoolExecutor pool = new ThreadPoolExecutor(Workers, Workers, 60, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(MaxQueuedHandshakes), ServerExecutors.threadFactory("secure handshake"));
+	static {
+		pool.allowCoreThreadTimeOut(true);
+	}
+
+	private static final BlockingQueue<KeyPair> keyPairs = new ArrayBlockingQueue<>(PreGeneratedKeyPairs);
+	private static final AtomicBoolean refilling = new AtomicBoolean();
+	// counts are only changed atomically within compute, so a count removed at 0 cannot get incremented afterwards
+	private static final Map<InetAddress, Integer> inProgress = new ConcurrentHashMap<>();
+
+	private SessionHandshakes() {}
+
+	/**
+	 * Submits a handshake for execution, unless the source exceeds its handshakes in progress or the pool is
+	 * saturated; in that case the session request is dropped and the client has to repeat it.
+	 *
+	 * @param source source address of the session request
+	 * @param handshake the handshake task
+	 * @return <code>true</code> if submitted, <code>false</code> if dropped
+	 */
+	static boolean submit(final InetAddress source, final Runnable handshake) {
+		final int count = inProgress.compute(source, (__, n) -> n == null ? 1 : n + 1);
+		if (count > MaxHandshakesPerSource) {
+			done(source);
+			logger.info("{} exceeds {} session handshakes in progress, drop session request", source.getHostAddress(),
+					MaxHandshakesPerSource);
+			return false;
+		}
+		try {
+			pool.execute(() -> {
+				try {
+					handshake.run();
+				}
+				finally {
+					done(source);
+				}
+			});
+			return true;
+		}
+		catch (final RejectedExecutionException e) {
+			done(source);
+			logger.warn("{} session handshakes pending, drop session request from {}", MaxQueuedHandshakes,
+					source.getHostAddress());
+			return false;
+		}
+	}
+
+	/**
+	 * Returns an ephemeral key pair for one handshake, either a pre-generated one or, if none is available, a newly
+	 * generated key pair.
+	 *
+	 * @return X25519 key pair
+	 * @throws NoSuchAlgorithmException if X25519 is not supported by the platform
+	 */
+	static KeyPair keyPair() throws NoSuchAlgorithmException {
+		final KeyPair keyPair = keyPairs.poll();
+		refill();
+		return keyPair != null ? keyPair : generateKeyPair();
+	}
+
+	/**
+	 * Pre-generates ephemeral key pairs in the background, call this when secure unicast services get configured.
+	 */
+	static void prepare() {
+		refill();
+	}
+
+	private static void done(final InetAddress source) {
+		inProgress.computeIfPresent(source, (__, n) -> n > 1 ? n - 1 : null);
+	}
+
+	private static void refill() {
+		if (!refilling.compareAndSet(false, true))
+			return;
+		try {
+			pool.execute(() -> {
+				try {
+					while (keyPairs.remainingCapacity() > 0 && pool.getQueue().isEmpty())
+						keyPairs.offer(generateKeyPair());
+				}
+				catch (final NoSuchAlgorithmException e) {
+					logger.error("pre-generate key pairs", e);
+				}
+				finally {
+					refilling.set(false);
+				}
+			});
+		}
+		catch (final RejectedExecutionException e) {
+			refilling.set(false);
+		}
+	}
+
+	private static KeyPair generateKeyPair() throws NoSuchAlgorithmException {
+		final KeyPairGenerator gen = KeyPairGenerator.getInstance("X25519");
+		return gen.generateKeyPair();
+	}
+}
@@ -0,0 +1,109 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+import tuwien.auto.calimero.KNXFormatException;
+import tuwien.auto.calimero.knxnetip.servicetype.KNXnetIPHeader;
+import tuwien.auto.calimero.knxnetip.servicetype.PacketHelper;
+
+/**
+ * Data endpoint shared by all tunneling and device management connections of a control endpoint. Received packets are
+ * routed to the data connection by the channel ID in the connection header; secure packets are unwrapped once by their
+ * secure session, and routed by the channel ID of the decrypted packet.
+ */
+final class SharedDataEndpointService extends ServiceLooper
+{
+	private final Map<Integer, DataEndpoint> connections;
+	private final SecureSession sessions;
+
+	SharedDataEndpointService(final KNXnetIPServer server, final DatagramSocket localCtrlEndpt,
+		final Map<Integer, DataEndpoint> connections, final SecureSession sessions)
+	{
+		// data endpoints enforce their receive timeout, our socket does not time out
+		super(server, newSocketUsingIp(server, localCtrlEndpt), 512, 0);
+		this.connections = connections;
+		this.sessions = sessions;
+		logger.debug("created shared data endpoint socket on " + s.getLocalSocketAddress());
+	}
+
+	@Override
+	boolean handleServiceType(final KNXnetIPHeader h, final byte[] data, final int offset, final InetAddress src,
+		final int port) throws KNXFormatException, IOException
+	{
+		if (h.isSecure())
+			return sessions.acceptService(h, data, offset, new InetSocketAddress(src, port), connections::get);
+
+		final DataEndpoint endpoint = connections.get(channelId(h, data, offset));
+		if (endpoint != null)
+			return endpoint.handleDataServiceType(h, data, offset);
+
+		logger.warn("received {} from {}:{} for unknown data connection - ignored", h, src.getHostAddress(), port);
+		return true;
+	}
+
+	static int channelId(final KNXnetIPHeader h, final byte[] data, final int offset) throws KNXFormatException
+	{
+		final int svc = h.getServiceType();
+		// connection state and disconnect services start with the channel ID
+		if (svc == KNXnetIPHeader.CONNECTIONSTATE_REQ || svc == KNXnetIPHeader.DISCONNECT_REQ
+				|| svc == KNXnetIPHeader.DISCONNECT_RES)
+			return data[offset] & 0xff;
+		// to get the channel id, we are just interested in connection header
+		// which has the same layout for request and ack
+		return PacketHelper.getEmptyServiceRequest(h, data, offset).getChannelID();
+	}
+
+	private static DatagramSocket newSocketUsingIp(final KNXnetIPServer server, final DatagramSocket localCtrlEndpt)
+	{
+		try {
+			final DatagramSocket s = server.multiplexUdp() ? UdpMultiplexer.newSocket() : new DatagramSocket(null);
+			s.setReuseAddress(true);
+			s.bind(new InetSocketAddress(localCtrlEndpt.getLocalAddress(), 0));
+			return s;
+		}
+		catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
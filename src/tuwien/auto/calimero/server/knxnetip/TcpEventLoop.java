@@ -0,0 +1,425 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.KNXFormatException;
+import tuwien.auto.calimero.knxnetip.servicetype.KNXnetIPHeader;
+
+/**
+ * Non-blocking tcp transport for KNXnet/IP, serving the tcp endpoints and client connections of all control endpoints
+ * with one shared event loop. Received data is decoded into frames in place, sending never blocks the caller: data a
+ * stalled client does not accept is queued and written using gathering writes once the client is ready again.
+ */
+final class TcpEventLoop implements Runnable {
+	private static final int InitialReceiveBufferSize = 512;
+	// max. KNXnet/IP frame size
+	private static final int MaxFrameSize = 0xffff;
+	// max. bytes queued for sending to a client, before we consider the client as stalled and close the connection
+	private static final int MaxQueuedBytes = 256 * 1024;
+	// max. buffers per gathering write
+	private static final int MaxGatheringWrite = 64;
+	private static final long SelectTimeout = 1000; // [ms]
+
+	private static final Logger loopLogger = LoggerFactory.getLogger("calimero.server.knxnetip.TcpEventLoop");
+
+	private static TcpEventLoop instance;
+
+	/**
+	 * Decodes KNXnet/IP frames from a tcp byte stream. Data is received into the decoder buffer, complete frames are
+	 * decoded in place, and a partial frame stays in the buffer until its remaining data is received. The buffer grows
+	 * to fit a frame larger than the buffer. Not thread-safe.
+	 */
+	static final class FrameDecoder {
+		@FunctionalInterface
+		interface FrameHandler {
+			void onFrame(KNXnetIPHeader h, byte[] data, int offset) throws KNXFormatException, IOException;
+		}
+
+		private ByteBuffer buffer;
+
+		FrameDecoder(final int initialCapacity) {
+			buffer = ByteBuffer.allocate(initialCapacity);
+		}
+
+		// buffer to receive into, the decoder might replace it on decoding
+		ByteBuffer buffer() { return buffer; }
+
+		/**
+		 * Decodes all complete frames received into the buffer, any partial frame is kept for the next call.
+		 *
+		 * @param handler receives each complete frame
+		 * @throws KNXFormatException on invalid frame header
+		 * @throws IOException propagated from the handler
+		 */
+		void decode(final FrameHandler handler) throws KNXFormatException, IOException {
+			buffer.flip();
+			try {
+				decodeFrames(handler);
+			}
+			finally {
+				buffer.compact();
+			}
+		}
+
+		private void decodeFrames(final FrameHandler handler) throws KNXFormatException, IOException {
+			while (buffer.remaining() >= 6) {
+				final byte[] data = buffer.array();
+				final int start = buffer.position();
+				final KNXnetIPHeader h = new KNXnetIPHeader(data, start);
+				final int total = h.getTotalLength();
+				if (total < h.getStructLength())
+					throw new KNXFormatException("invalid KNXnet/IP frame length " + total);
+				// a partial frame which does not fit, we keep receiving into a larger buffer
+				if (total > buffer.capacity()) {
+					grow(total);
+					return;
+				}
+				if (buffer.remaining() < total)
+					return;
+				buffer.position(start + total);
+				handler.onFrame(h, data, start + h.getStructLength());
+			}
+		}
+
+		private void grow(final int frameSize) {
+			final int capacity = Math.min(Integer.highestOneBit(frameSize - 1) << 1, MaxFrameSize);
+			final ByteBuffer grown = ByteBuffer.allocate(Math.max(capacity, frameSize));
+			grown.put(buffer).flip();
+			buffer = grown;
+		}
+	}
+
+	/**
+	 * Data queued for sending on a non-blocking channel. Data the channel does not accept stays queued, and is written
+	 * using gathering writes once the channel accepts data again. Not thread-safe.
+	 */
+	static final class SendQueue {
+		private final GatheringByteChannel channel;
+		private final int maxQueuedBytes;
+		private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+		private int queuedBytes;
+
+		SendQueue(final GatheringByteChannel channel, final int maxQueuedBytes) {
+			this.channel = channel;
+			this.maxQueuedBytes = maxQueuedBytes;
+		}
+
+		/**
+		 * Adds data to the queue.
+		 *
+		 * @param data data to send
+		 * @return <code>false</code> if the data would exceed the max. queued bytes, i.e., the peer stalled;
+		 *         <code>true</code> otherwise
+		 */
+		boolean add(final byte[] data) {
+			if (queuedBytes + data.length > maxQueuedBytes)
+				return false;
+			queue.add(ByteBuffer.wrap(data));
+			queuedBytes += data.length;
+			return true;
+		}
+
+		/**
+		 * Writes as much queued data as the channel accepts without blocking.
+		 *
+		 * @return <code>true</code> if all queued data got written, <code>false</code> otherwise
+		 * @throws IOException on write error
+		 */
+		boolean flush() throws IOException {
+			while (!queue.isEmpty()) {
+				final ByteBuffer[] buffers = queue.stream().limit(MaxGatheringWrite).toArray(ByteBuffer[]::new);
+				final long written = channel.write(buffers);
+				queuedBytes -= written;
+				while (!queue.isEmpty() && !queue.peek().hasRemaining())
+					queue.poll();
+				if (written == 0)
+					break;
+			}
+			return queue.isEmpty();
+		}
+
+		int size() { return queue.size(); }
+
+		int queuedBytes() { return queuedBytes; }
+
+		void clear() {
+			queue.clear();
+			queuedBytes = 0;
+		}
+	}
+
+	private final Selector selector;
+	private final Thread thread;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+	static synchronized TcpEventLoop instance() throws IOException {
+		if (instance == null)
+			instance = new TcpEventLoop();
+		return instance;
+	}
+
+	private TcpEventLoop() throws IOException {
+		selector = Selector.open();
+		thread = new Thread(this, "tcp event loop");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	Closeable listen(final ControlEndpointService ces, final InetSocketAddress endpoint) throws IOException {
+		final ServerSocketChannel server = ServerSocketChannel.open();
+		try {
+			server.bind(endpoint, 50);
+			server.configureBlocking(false);
+		}
+		catch (final IOException e) {
+			server.close();
+			throw e;
+		}
+		final String name = ces.server.getName() + " tcp service " + ces.getServiceContainer().getName();
+		execute(() -> {
+			try {
+				server.register(selector, SelectionKey.OP_ACCEPT, ces);
+				ces.logger.info("{} is up and running", name);
+			}
+			catch (final ClosedChannelException e) {
+				// closed before we could register
+			}
+		});
+		return server;
+	}
+
+	@Override
+	public void run() {
+		while (selector.isOpen()) {
+			try {
+				for (Runnable task = tasks.poll(); task != null; task = tasks.poll())
+					task.run();
+				selector.select(SelectTimeout);
+				final var keys = selector.selectedKeys();
+				for (final SelectionKey key : keys) {
+					if (!key.isValid())
+						continue;
+					if (key.isAcceptable())
+						accept(key);
+					else {
+						final Connection c = (Connection) key.attachment();
+						if (key.isReadable())
+							c.read();
+						if (key.isValid() && key.isWritable())
+							c.flush();
+					}
+				}
+				keys.clear();
+				checkInactiveConnections();
+			}
+			catch (IOException | RuntimeException e) {
+				// keep the loop running, a failing connection or handler must not affect others
+				loopLogger.error("{}", thread.getName(), e);
+			}
+		}
+	}
+
+	private void execute(final Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	private void accept(final SelectionKey key) throws IOException {
+		final ControlEndpointService ces = (ControlEndpointService) key.attachment();
+		final SocketChannel channel;
+		try {
+			channel = ((ServerSocketChannel) key.channel()).accept();
+		}
+		catch (final IOException e) {
+			ces.logger.error("accepting tcp connection on {}", key.channel(), e);
+			return;
+		}
+		if (channel == null)
+			return;
+		channel.configureBlocking(false);
+		final Connection c = new Connection(ces, channel);
+		c.key = channel.register(selector, SelectionKey.OP_READ, c);
+		TcpLooper.connections.put(c.remote, c);
+		ces.logger.info("accepted {}", c.name);
+	}
+
+	private void checkInactiveConnections() {
+		final long now = System.nanoTime();
+		final long timeout = TcpLooper.inactiveConnectionTimeout.toNanos();
+		for (final SelectionKey key : selector.keys()) {
+			if (!key.isValid() || !(key.attachment() instanceof Connection))
+				continue;
+			final Connection c = (Connection) key.attachment();
+			if (now - c.lastReceived >= timeout) {
+				c.lastReceived = now;
+				if (TcpLooper.inactive(c.ctrlEndpoint, c.remote))
+					c.close("no active secure session or client connection");
+			}
+		}
+	}
+
+	private final class Connection implements TcpConnection {
+		private final ControlEndpointService ctrlEndpoint;
+		private final SocketChannel channel;
+		private final InetSocketAddress remote;
+		private final String name;
+		private final Logger logger;
+		private SelectionKey key;
+
+		// only accessed by the event loop
+		private final FrameDecoder decoder = new FrameDecoder(InitialReceiveBufferSize);
+		private long lastReceived = System.nanoTime();
+
+		// guarded by writeQueue
+		private final SendQueue writeQueue;
+
+		Connection(final ControlEndpointService ces, final SocketChannel channel) throws IOException {
+			ctrlEndpoint = ces;
+			this.channel = channel;
+			writeQueue = new SendQueue(channel, MaxQueuedBytes);
+			remote = (InetSocketAddress) channel.getRemoteAddress();
+			name = ces.server.getName() + " " + ces.getServiceContainer().getName() + " tcp connection " + remote;
+			logger = ces.logger;
+		}
+
+		@Override
+		public ControlEndpointService ctrlEndpoint() {
+			return ctrlEndpoint;
+		}
+
+		@Override
+		public void send(final byte[] data) throws IOException {
+			synchronized (writeQueue) {
+				if (!writeQueue.add(data)) {
+					close("client stalled, " + writeQueue.queuedBytes() + " bytes queued for sending");
+					throw new IOException("tcp connection to " + remote + " closed, client stalled");
+				}
+				// if we're already waiting for the channel to become writable, the event loop flushes the queue
+				if (writeQueue.size() == 1)
+					flush();
+			}
+		}
+
+		// writes as much queued data as the channel accepts without blocking
+		void flush() {
+			synchronized (writeQueue) {
+				try {
+					final int ops = writeQueue.flush() ? SelectionKey.OP_READ
+							: SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+					if (key.interestOps() != ops) {
+						key.interestOps(ops);
+						selector.wakeup();
+					}
+				}
+				catch (final IOException | RuntimeException e) {
+					close("I/O error: " + e.getMessage());
+				}
+			}
+		}
+
+		void read() {
+			try {
+				final int read = channel.read(decoder.buffer());
+				if (read == -1) {
+					close("");
+					return;
+				}
+				lastReceived = System.nanoTime();
+				decoder.decode(this::onReceive);
+			}
+			catch (final KNXFormatException e) {
+				logger.warn("received invalid frame", e);
+				close("invalid frame");
+			}
+			catch (IOException | RuntimeException e) {
+				if (channel.isOpen())
+					logger.error("tcp connection error to {}", remote, e);
+				close("");
+			}
+		}
+
+		private void onReceive(final KNXnetIPHeader h, final byte[] data, final int offset)
+			throws KNXFormatException, IOException {
+			// check service type for 0 (invalid type), so unused service types of us can stay 0 by default
+			if (h.getServiceType() == 0)
+				logger.warn("received frame with service type 0 - ignored");
+			else if (!ctrlEndpoint.handleServiceType(h, data, offset, remote.getAddress(), remote.getPort())) {
+				final int svc = h.getServiceType();
+				logger.info("received packet from {} with unknown service type 0x{} - ignored", remote,
+						Integer.toHexString(svc));
+			}
+		}
+
+		@Override
+		public void close(final String reason) {
+			if (!TcpLooper.connections.remove(remote, this))
+				return;
+			final String suffix = reason.isEmpty() ? "" : " (" + reason + ")";
+			logger.info("close tcp connection to {}{}", remote, suffix);
+			try {
+				channel.close();
+			}
+			catch (final IOException ignore) {}
+			synchronized (writeQueue) {
+				writeQueue.clear();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+}
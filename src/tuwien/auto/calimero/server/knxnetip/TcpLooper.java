@@ -50,7 +50,6 @@ import java.util.AbstractQueue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -59,27 +58,26 @@ import org.slf4j.Logger;
 import tuwien.auto.calimero.KNXFormatException;
 import tuwien.auto.calimero.KnxRuntimeException;
 import tuwien.auto.calimero.knxnetip.servicetype.KNXnetIPHeader;
+import tuwien.auto.calimero.server.ServerExecutors;
 
-final class TcpLooper implements Runnable, AutoCloseable {
+final class TcpLooper implements TcpConnection, Runnable, AutoCloseable {
 
-	private static final Duration inactiveConnectionTimeout = Duration.ofSeconds(10);
+	static final Duration inactiveConnectionTimeout = Duration.ofSeconds(10);
 
 	private final ControlEndpointService ctrlEndpoint;
 	private final Socket socket;
 	private final Logger logger;
 
-	static final ConcurrentHashMap<InetSocketAddress, TcpLooper> connections = new ConcurrentHashMap<>();
+	static final ConcurrentHashMap<InetSocketAddress, TcpConnection> connections = new ConcurrentHashMap<>();
 
-	private static final ExecutorService pool = Executors.newCachedThreadPool(r -> {
-		final Thread t = new Thread(r);
-		t.setDaemon(true);
-		return t;
-	});
+	private static final ExecutorService pool = ServerExecutors.newCachedPool("tcp looper");
 
 	// impl note: we cannot simply return the future of ExecutorService::submit, because Future::cancel is
 	// interrupt-based, and the server socket does not honor interrupts; we have to close the socket directly
 	public static Closeable start(final ControlEndpointService ctrlEndpoint, final InetSocketAddress endpoint)
-		throws InterruptedException {
+		throws InterruptedException, IOException {
+		if (ctrlEndpoint.server.tcpEventLoop())
+			return TcpEventLoop.instance().listen(ctrlEndpoint, endpoint);
 		final var serverSocket = new ArrayBlockingQueue<Closeable>(1);
 		final Future<?> task = pool.submit(() -> runTcpServerEndpoint(ctrlEndpoint, endpoint, serverSocket));
 		while (!task.isDone()) {
@@ -97,11 +95,11 @@ final class TcpLooper implements Runnable, AutoCloseable {
 	}
 
 	static boolean send(final byte[] buf, final InetSocketAddress address) throws IOException {
-		final TcpLooper looper = connections.get(address);
-		if (looper == null)
+		final TcpConnection connection = connections.get(address);
+		if (connection == null)
 			return false;
 
-		looper.send(buf);
+		connection.send(buf);
 		return true;
 	}
 
@@ -138,24 +136,28 @@ final class TcpLooper implements Runnable, AutoCloseable {
 	}
 
 	static void lastSessionTimedOut(final InetSocketAddress remote) {
-		final TcpLooper looper = connections.get(remote);
-		if (looper != null && !looper.ctrlEndpoint.anyMatchDataConnection(remote))
-			looper.close("last active secure session timed out");
+		final TcpConnection connection = connections.get(remote);
+		if (connection != null && !connection.ctrlEndpoint().anyMatchDataConnection(remote))
+			connection.close("last active secure session timed out");
 	}
 
 	static void lastConnectionTimedOut(final InetSocketAddress remote) {
-		final TcpLooper looper = connections.get(remote);
-		if (looper != null && !looper.ctrlEndpoint.sessions.anyMatch(remote))
-			looper.close("last active client connection timed out");
+		final TcpConnection connection = connections.get(remote);
+		if (connection != null && !connection.ctrlEndpoint().sessions.anyMatch(remote))
+			connection.close("last active client connection timed out");
 	}
 
-	private boolean inactive() {
-		final InetSocketAddress remote = (InetSocketAddress) socket.getRemoteSocketAddress();
+	static boolean inactive(final ControlEndpointService ctrlEndpoint, final InetSocketAddress remote) {
 		if (!ctrlEndpoint.sessions.anyMatch(remote) && !ctrlEndpoint.anyMatchDataConnection(remote))
 			return true;
 		return false;
 	}
 
+	@Override
+	public ControlEndpointService ctrlEndpoint() {
+		return ctrlEndpoint;
+	}
+
 	@Override
 	public void run() {
 		final String name = ctrlEndpoint.server.getName() + " " + ctrlEndpoint.getServiceContainer().getName()
@@ -204,7 +206,7 @@ final class TcpLooper implements Runnable, AutoCloseable {
 					offset += read;
 				}
 				catch (final SocketTimeoutException e1) {
-					if (inactive()) {
+					if (inactive(ctrlEndpoint, (InetSocketAddress) socket.getRemoteSocketAddress())) {
 						close("no active secure session or client connection");
 						return;
 					}
@@ -224,6 +226,7 @@ final class TcpLooper implements Runnable, AutoCloseable {
 		}
 	}
 
+	@Override
 	public void send(final byte[] data) throws IOException {
 		try {
 			final OutputStream out = socket.getOutputStream();
@@ -241,7 +244,8 @@ final class TcpLooper implements Runnable, AutoCloseable {
 		close("");
 	}
 
-	private void close(final String reason) {
+	@Override
+	public void close(final String reason) {
 		final String suffix = reason.isEmpty() ? "" : " (" + reason + ")";
 		logger.info("close tcp connection to {}{}", socket.getRemoteSocketAddress(), suffix);
 		try {
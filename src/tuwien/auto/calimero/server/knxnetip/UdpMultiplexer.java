@@ -0,0 +1,285 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.log.LogService.LogLevel;
+
+/**
+ * Multiplexes the UDP control and data endpoints of a server onto a few selector threads, instead of running a
+ * blocking looper thread for each endpoint. Multiplexed endpoints use channel adaptor sockets; received packets are
+ * dispatched by channel to the service looper owning the socket. The socket timeout of a looper is still honored, the
+ * selector calls {@link ServiceLooper#onTimeout()} if no packet was received within the timeout.
+ */
+final class UdpMultiplexer implements Closeable {
+	// max. UDP payload
+	private static final int MaxDatagramSize = 65507;
+	// limit receives per channel and selection, so a flooding client can't starve the other channels
+	private static final int MaxReceivesPerSelect = 16;
+	private static final long TimeoutResolution = 250; // [ms]
+
+	// a full socket send buffer is retried for a short time, similar to a blocking send, before dropping the datagram
+	private static final long MaxSendWait = TimeUnit.MILLISECONDS.toNanos(5);
+	private static final long SendRetryInterval = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long DropWarningInterval = TimeUnit.SECONDS.toNanos(10);
+	private static final LongAdder droppedDatagrams = new LongAdder();
+	private static final AtomicLong lastDropWarning = new AtomicLong(System.nanoTime() - DropWarningInterval);
+	private static final Logger sendLogger = LoggerFactory.getLogger("calimero.server.knxnetip.UdpMultiplexer");
+
+	private final Logger logger;
+	private final SelectorLoop[] loops;
+	private final AtomicInteger next = new AtomicInteger();
+
+	private static final class Registration {
+		final ServiceLooper looper;
+		final DatagramChannel channel;
+		long lastReceive = System.nanoTime();
+
+		Registration(final ServiceLooper looper, final DatagramChannel channel) {
+			this.looper = looper;
+			this.channel = channel;
+		}
+	}
+
+	UdpMultiplexer(final KNXnetIPServer server, final int threads) throws IOException {
+		logger = server.logger;
+		loops = new SelectorLoop[Math.max(1, threads)];
+		try {
+			for (int i = 0; i < loops.length; i++)
+				loops[i] = new SelectorLoop(server.getName() + " UDP selector " + (i + 1));
+		}
+		catch (final IOException e) {
+			close();
+			throw e;
+		}
+		for (final SelectorLoop loop : loops)
+			loop.thread.start();
+	}
+
+	// returns an unbound socket backed by a datagram channel, which can be registered with the multiplexer
+	static DatagramSocket newSocket() throws IOException {
+		return DatagramChannel.open().socket();
+	}
+
+	static boolean isMultiplexed(final DatagramSocket s) {
+		return s != null && s.getChannel() != null;
+	}
+
+	// channel adaptor sockets are non-blocking once registered, and have to send using the channel
+	static void send(final DatagramSocket s, final byte[] buf, final InetSocketAddress dst) throws IOException {
+		final DatagramChannel channel = s.getChannel();
+		if (channel == null) {
+			s.send(new DatagramPacket(buf, buf.length, dst));
+			return;
+		}
+		// a non-blocking send either sends the complete datagram, or nothing if the send buffer is full
+		final ByteBuffer data = ByteBuffer.wrap(buf);
+		channel.send(data, dst);
+		final long start = System.nanoTime();
+		while (data.hasRemaining()) {
+			if (System.nanoTime() - start >= MaxSendWait) {
+				dropped(s, dst);
+				return;
+			}
+			LockSupport.parkNanos(SendRetryInterval);
+			channel.send(data, dst);
+		}
+	}
+
+	static long droppedDatagrams() { return droppedDatagrams.sum(); }
+
+	private static void dropped(final DatagramSocket s, final InetSocketAddress dst) {
+		droppedDatagrams.increment();
+		final long now = System.nanoTime();
+		final long last = lastDropWarning.get();
+		if (now - last >= DropWarningInterval && lastDropWarning.compareAndSet(last, now))
+			sendLogger.warn("send buffer of {} full, dropped datagram to {} ({} dropped in total)",
+					s.getLocalSocketAddress(), dst, droppedDatagrams.sum());
+		else
+			sendLogger.debug("send buffer of {} full, dropped datagram to {}", s.getLocalSocketAddress(), dst);
+	}
+
+	void register(final ServiceLooper looper) throws IOException {
+		final DatagramChannel channel = looper.getSocket().getChannel();
+		channel.configureBlocking(false);
+		final SelectorLoop loop = loops[Math.floorMod(next.getAndIncrement(), loops.length)];
+		loop.pending.add(new Registration(looper, channel));
+		loop.selector.wakeup();
+	}
+
+	int channels() {
+		int channels = 0;
+		for (final SelectorLoop loop : loops)
+			channels += loop.channels;
+		return channels;
+	}
+
+	@Override
+	public void close() {
+		for (final SelectorLoop loop : loops) {
+			if (loop == null)
+				continue;
+			loop.thread.interrupt();
+			try {
+				loop.selector.close();
+			}
+			catch (final IOException ignore) {}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return loops.length + " UDP selector threads, " + channels() + " channels, " + droppedDatagrams()
+				+ " datagrams dropped on full send buffer";
+	}
+
+	private final class SelectorLoop implements Runnable {
+		final Selector selector;
+		final Thread thread;
+		final Queue<Registration> pending = new ConcurrentLinkedQueue<>();
+		final ByteBuffer buffer = ByteBuffer.allocate(MaxDatagramSize);
+		volatile int channels;
+
+		SelectorLoop(final String name) throws IOException {
+			selector = Selector.open();
+			thread = new Thread(this, name);
+			thread.setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!thread.isInterrupted()) {
+					registerPending();
+					selector.select(TimeoutResolution);
+					final var keys = selector.selectedKeys();
+					for (final SelectionKey key : keys) {
+						if (key.isValid() && key.isReadable())
+							receive(key, (Registration) key.attachment());
+					}
+					keys.clear();
+					checkTimeouts();
+				}
+			}
+			catch (IOException | ClosedSelectorException e) {
+				if (selector.isOpen())
+					logger.error("{} failed", thread.getName(), e);
+			}
+		}
+
+		private void registerPending() {
+			for (Registration r = pending.poll(); r != null; r = pending.poll()) {
+				try {
+					r.channel.register(selector, SelectionKey.OP_READ, r);
+				}
+				catch (final ClosedChannelException e) {
+					// looper got closed before we could register it
+				}
+			}
+			channels = selector.keys().size();
+		}
+
+		private void receive(final SelectionKey key, final Registration r) {
+			final ServiceLooper looper = r.looper;
+			try {
+				for (int i = 0; i < MaxReceivesPerSelect; i++) {
+					buffer.clear();
+					final InetSocketAddress source = (InetSocketAddress) r.channel.receive(buffer);
+					if (source == null)
+						return;
+					r.lastReceive = System.nanoTime();
+					looper.onReceive(source, buffer.array(), 0, buffer.position());
+				}
+			}
+			catch (final ClosedChannelException e) {
+				key.cancel();
+			}
+			catch (final IOException e) {
+				key.cancel();
+				looper.cleanup(LogLevel.ERROR, e);
+				looper.quit();
+			}
+			catch (final RuntimeException e) {
+				logger.error("runtime exception in service loop of {}", looper.getSocket().getLocalSocketAddress(), e);
+				key.cancel();
+				looper.cleanup(LogLevel.INFO, null);
+				looper.quit();
+			}
+		}
+
+		private void checkTimeouts() {
+			final long now = System.nanoTime();
+			for (final SelectionKey key : selector.keys()) {
+				final Registration r = (Registration) key.attachment();
+				if (!key.isValid())
+					continue;
+				try {
+					final int timeout = r.looper.getSocket().getSoTimeout();
+					if (timeout > 0 && now - r.lastReceive >= TimeUnit.MILLISECONDS.toNanos(timeout)) {
+						r.lastReceive = now;
+						r.looper.onTimeout();
+					}
+				}
+				catch (final IOException | RuntimeException e) {
+					logger.warn("timeout handling of {}", r.looper.getSocket().getLocalSocketAddress(), e);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,305 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+package tuwien.auto.calimero.server.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.IndividualAddress;
+import tuwien.auto.calimero.Priority;
+import tuwien.auto.calimero.cemi.CEMI;
+import tuwien.auto.calimero.cemi.CEMILData;
+import tuwien.auto.calimero.knxnetip.KNXnetIPConnection;
+import tuwien.auto.calimero.server.knxnetip.DefaultServiceContainer.OverflowPolicy;
+
+class ClientSendQueueTest
+{
+	private static final int Capacity = 3;
+
+	private final CountDownLatch closed = new CountDownLatch(1);
+	private final KNXnetIPConnection connection = (KNXnetIPConnection) Proxy.newProxyInstance(
+			KNXnetIPConnection.class.getClassLoader(), new Class<?>[] { KNXnetIPConnection.class },
+			(proxy, method, args) -> {
+				switch (method.getName()) {
+				case "close": closed.countDown(); return null;
+				case "toString": return "test connection";
+				case "hashCode": return System.identityHashCode(proxy);
+				case "equals": return proxy == args[0];
+				default: return null;
+				}
+			});
+
+	// names of sent and dropped frames, in the order of sending or dropping
+	private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+	private final List<String> dropped = Collections.synchronizedList(new ArrayList<>());
+
+	private ClientSendQueue queue(final OverflowPolicy policy)
+	{
+		return new ClientSendQueue(connection, Capacity, policy, LoggerFactory.getLogger("ClientSendQueueTest"));
+	}
+
+	private static CEMI groupValueWrite(final int group, final int value)
+	{
+		return new CEMILData(CEMILData.MC_LDATA_IND, new IndividualAddress(1), new GroupAddress(group),
+				new byte[] { 0, (byte) (0x80 | value) }, Priority.LOW);
+	}
+
+	private static CEMI confirmation(final int group)
+	{
+		return new CEMILData(CEMILData.MC_LDATA_CON, new IndividualAddress(1), new GroupAddress(group),
+				new byte[] { 0, (byte) 0x81 }, Priority.LOW);
+	}
+
+	private boolean enqueue(final ClientSendQueue queue, final String name, final CEMI frame)
+	{
+		return queue.enqueue(frame, () -> sent.add(name), () -> dropped.add(name));
+	}
+
+	private boolean enqueue(final ClientSendQueue queue, final String name)
+	{
+		return enqueue(queue, name, groupValueWrite(name.hashCode() & 0xfff, 0));
+	}
+
+	// waits until the queue has sent the expected number of frames
+	private void awaitSent(final int frames) throws InterruptedException
+	{
+		final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (sent.size() < frames && System.nanoTime() < end)
+			Thread.sleep(5);
+		// give the sender a chance to send more frames than expected
+		Thread.sleep(50);
+	}
+
+	@Test
+	void testSendsInOrder() throws InterruptedException
+	{
+		final ClientSendQueue queue = new ClientSendQueue(connection, 100, OverflowPolicy.DropOldest,
+				LoggerFactory.getLogger("ClientSendQueueTest"));
+		final List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			assertTrue(enqueue(queue, "f" + i));
+			expected.add("f" + i);
+		}
+		awaitSent(50);
+		assertEquals(expected, sent);
+		assertEquals(List.of(), dropped);
+		assertEquals(0, queue.depth());
+	}
+
+	@Test
+	void testDropOldest() throws InterruptedException
+	{
+		final ClientSendQueue queue = queue(OverflowPolicy.DropOldest);
+		queue.pause();
+		for (int i = 0; i < 5; i++)
+			assertTrue(enqueue(queue, "f" + i));
+		assertEquals(Capacity, queue.depth());
+		assertEquals(List.of("f0", "f1"), dropped);
+
+		queue.resume();
+		awaitSent(3);
+		assertEquals(List.of("f2", "f3", "f4"), sent);
+		assertTrue(queue.toString().contains("dropped 2"), queue.toString());
+		assertEquals(1, closed.getCount());
+	}
+
+	@Test
+	void testDisconnect() throws InterruptedException
+	{
+		final ClientSendQueue queue = queue(OverflowPolicy.Disconnect);
+		queue.pause();
+		for (int i = 0; i < Capacity; i++)
+			assertTrue(enqueue(queue, "f" + i));
+		assertFalse(enqueue(queue, "f3"));
+		assertTrue(closed.await(5, TimeUnit.SECONDS), "client connection not closed");
+		// all queued frames and the rejected frame are dropped
+		assertEquals(List.of("f0", "f1", "f2", "f3"), dropped);
+		assertEquals(0, queue.depth());
+
+		assertFalse(enqueue(queue, "f4"));
+		assertEquals("f4", dropped.get(4));
+		queue.resume();
+		awaitSent(0);
+		assertEquals(List.of(), sent);
+	}
+
+	@Test
+	void testCoalesce() throws InterruptedException
+	{
+		final ClientSendQueue queue = queue(OverflowPolicy.Coalesce);
+		queue.pause();
+		assertTrue(enqueue(queue, "a", groupValueWrite(1, 0)));
+		assertTrue(enqueue(queue, "b", groupValueWrite(2, 0)));
+		assertTrue(enqueue(queue, "c", groupValueWrite(3, 0)));
+		// replaces the queued write to the same group address, at its position in the queue
+		assertTrue(enqueue(queue, "b'", groupValueWrite(2, 1)));
+		assertEquals(Capacity, queue.depth());
+		assertEquals(List.of(), dropped);
+
+		queue.resume();
+		awaitSent(3);
+		assertEquals(List.of("a", "b'", "c"), sent);
+		assertTrue(queue.toString().contains("coalesced 1"), queue.toString());
+	}
+
+	@Test
+	void testCoalesceDropsOldestWithoutMatch() throws InterruptedException
+	{
+		final ClientSendQueue queue = queue(OverflowPolicy.Coalesce);
+		queue.pause();
+		assertTrue(enqueue(queue, "a", groupValueWrite(1, 0)));
+		assertTrue(enqueue(queue, "b", groupValueWrite(2, 0)));
+		assertTrue(enqueue(queue, "c", groupValueWrite(3, 0)));
+		assertTrue(enqueue(queue, "d", groupValueWrite(4, 0)));
+		assertEquals(List.of("a"), dropped);
+
+		queue.resume();
+		awaitSent(3);
+		assertEquals(List.of("b", "c", "d"), sent);
+	}
+
+	@Test
+	void testCoalesceKeepsConfirmations() throws InterruptedException
+	{
+		final ClientSendQueue queue = queue(OverflowPolicy.Coalesce);
+		queue.pause();
+		assertTrue(enqueue(queue, "con1", confirmation(1)));
+		assertTrue(enqueue(queue, "con2", confirmation(1)));
+		assertTrue(enqueue(queue, "con3", confirmation(1)));
+		// confirmations are never replaced, a full queue drops the oldest frame instead
+		assertTrue(enqueue(queue, "con4", confirmation(1)));
+		assertEquals(List.of("con1"), dropped);
+
+		queue.resume();
+		awaitSent(3);
+		assertEquals(List.of("con2", "con3", "con4"), sent);
+	}
+
+	@Test
+	void testEvictedConfirmationIsCounted() throws InterruptedException
+	{
+		final AtomicInteger droppedConfirmations = new AtomicInteger();
+		final ClientSendQueue queue = queue(OverflowPolicy.DropOldest);
+		queue.pause();
+		assertTrue(queue.enqueue(confirmation(1), () -> sent.add("con"), droppedConfirmations::incrementAndGet));
+		assertTrue(enqueue(queue, "f1"));
+		assertTrue(enqueue(queue, "f2"));
+		// a newer indication evicts the queued confirmation
+		assertTrue(enqueue(queue, "f3"));
+		assertEquals(1, droppedConfirmations.get());
+
+		queue.resume();
+		awaitSent(3);
+		assertEquals(List.of("f1", "f2", "f3"), sent);
+	}
+
+	@Test
+	void testCloseDropsQueuedFrames() throws InterruptedException
+	{
+		final ClientSendQueue queue = queue(OverflowPolicy.DropOldest);
+		queue.pause();
+		assertTrue(enqueue(queue, "f0"));
+		assertTrue(enqueue(queue, "f1"));
+		queue.close();
+		assertEquals(List.of("f0", "f1"), dropped);
+		assertFalse(enqueue(queue, "f2"));
+		assertEquals(List.of("f0", "f1", "f2"), dropped);
+
+		queue.resume();
+		awaitSent(0);
+		assertEquals(List.of(), sent);
+	}
+
+	@Test
+	void testPauseWaitsForFrameInProgress() throws InterruptedException
+	{
+		final ClientSendQueue queue = queue(OverflowPolicy.DropOldest);
+		final CountDownLatch sending = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		queue.enqueue(groupValueWrite(1, 0), () -> {
+			sending.countDown();
+			try {
+				release.await();
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			sent.add("in progress");
+		}, () -> dropped.add("in progress"));
+		assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+		// a replay pauses the queue, and waits for the frame in progress before replaying
+		queue.pause();
+		assertTrue(enqueue(queue, "queued"));
+		final CountDownLatch idle = new CountDownLatch(1);
+		final Thread replay = new Thread(() -> {
+			try {
+				queue.awaitIdle();
+				sent.add("replayed");
+				idle.countDown();
+			}
+			catch (final InterruptedException e) {}
+		});
+		replay.start();
+		assertFalse(idle.await(100, TimeUnit.MILLISECONDS), "awaitIdle returned while sending");
+
+		release.countDown();
+		assertTrue(idle.await(5, TimeUnit.SECONDS));
+		awaitSent(2);
+		assertEquals(List.of("in progress", "replayed"), sent);
+
+		// frames queued during the replay are sent after it
+		queue.resume();
+		awaitSent(3);
+		assertEquals(List.of("in progress", "replayed", "queued"), sent);
+		assertEquals(List.of(), dropped);
+		replay.join();
+	}
+}
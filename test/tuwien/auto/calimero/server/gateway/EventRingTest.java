@@ -0,0 +1,173 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+package tuwien.auto.calimero.server.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import tuwien.auto.calimero.FrameEvent;
+
+class EventRingTest
+{
+	private static FrameEvent event(final int producer, final int seq)
+	{
+		return new FrameEvent(new int[] { producer, seq }, new byte[0]);
+	}
+
+	private static int[] id(final FrameEvent e)
+	{
+		return (int[]) e.getSource();
+	}
+
+	@Test
+	void testCapacityRoundedToPowerOfTwo()
+	{
+		assertEquals(1, new EventRing(1).capacity());
+		assertEquals(8, new EventRing(5).capacity());
+		assertEquals(1024, new EventRing(1000).capacity());
+		assertEquals(1024, new EventRing(1024).capacity());
+	}
+
+	@Test
+	void testFullRingRejectsOffer()
+	{
+		final EventRing ring = new EventRing(4);
+		for (int i = 0; i < 4; i++)
+			assertTrue(ring.offer(event(0, i)));
+		assertFalse(ring.offer(event(0, 4)));
+		assertEquals(4, ring.size());
+		assertEquals(4, ring.highWaterMark());
+
+		final List<FrameEvent> drained = new ArrayList<>();
+		assertEquals(1, ring.drainTo(drained, 1));
+		assertTrue(ring.offer(event(0, 4)));
+		assertEquals(4, ring.size());
+	}
+
+	@Test
+	void testFifoAcrossWrapAround()
+	{
+		final EventRing ring = new EventRing(8);
+		final List<FrameEvent> drained = new ArrayList<>();
+		int next = 0;
+		int expected = 0;
+		for (int round = 0; round < 100; round++) {
+			// offer and drain different amounts, so that head and tail wrap at different slots
+			for (int i = 0; i < 1 + round % 8 && ring.offer(event(0, next)); i++)
+				next++;
+			ring.drainTo(drained, 1 + round % 5);
+			for (final FrameEvent e : drained)
+				assertEquals(expected++, id(e)[1]);
+			drained.clear();
+		}
+		ring.drainTo(drained, 8);
+		for (final FrameEvent e : drained)
+			assertEquals(expected++, id(e)[1]);
+		assertEquals(next, expected);
+		assertEquals(0, ring.size());
+	}
+
+	@Test
+	void testConcurrentProducersKeepOrderPerProducer() throws InterruptedException
+	{
+		final int producers = 4;
+		final int events = 50_000;
+		final EventRing ring = new EventRing(64);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			final Thread t = new Thread(() -> {
+				try {
+					start.await();
+				}
+				catch (final InterruptedException e) {
+					return;
+				}
+				for (int i = 0; i < events; i++) {
+					final FrameEvent e = event(producer, i);
+					while (!ring.offer(e))
+						Thread.yield();
+				}
+			});
+			t.start();
+			threads.add(t);
+		}
+		start.countDown();
+
+		final int[] next = new int[producers];
+		final List<FrameEvent> batch = new ArrayList<>();
+		int received = 0;
+		while (received < producers * events) {
+			received += ring.take(batch, 16);
+			for (final FrameEvent e : batch) {
+				final int[] id = id(e);
+				assertEquals(next[id[0]]++, id[1], "producer " + id[0]);
+			}
+			batch.clear();
+		}
+		for (final Thread t : threads)
+			t.join();
+		assertEquals(0, ring.size());
+		assertTrue(ring.highWaterMark() <= ring.capacity());
+	}
+
+	@Test
+	void testTakeWaitsForEvent() throws InterruptedException
+	{
+		final EventRing ring = new EventRing(4);
+		final Thread producer = new Thread(() -> {
+			try {
+				Thread.sleep(100);
+			}
+			catch (final InterruptedException e) {}
+			ring.offer(event(0, 0));
+		});
+		producer.start();
+		final List<FrameEvent> batch = new ArrayList<>();
+		assertEquals(1, ring.take(batch, 4));
+		assertEquals(0, id(batch.get(0))[1]);
+		producer.join();
+	}
+}
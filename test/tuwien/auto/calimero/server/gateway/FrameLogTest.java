@@ -0,0 +1,162 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+package tuwien.auto.calimero.server.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FrameLogTest
+{
+	private static final int SegmentSize = FrameLog.MinSegmentSize;
+
+	@TempDir
+	Path dir;
+
+	private final List<Long> sequences = new ArrayList<>();
+	private final List<byte[]> frames = new ArrayList<>();
+
+	private static byte[] frame(final long sequence)
+	{
+		final byte[] data = new byte[11 + (int) (sequence % 7)];
+		for (int i = 0; i < data.length; i++)
+			data[i] = (byte) (sequence + i);
+		return data;
+	}
+
+	private void restore(final FrameLog log) throws IOException
+	{
+		sequences.clear();
+		frames.clear();
+		log.restore((data, sequence) -> {
+			sequences.add(sequence);
+			frames.add(data);
+		});
+	}
+
+	@Test
+	void testRestoreAfterReopen() throws IOException
+	{
+		try (FrameLog log = new FrameLog(dir, SegmentSize, 4)) {
+			restore(log);
+			assertTrue(sequences.isEmpty());
+			for (long seq = 0; seq < 50; seq++)
+				log.append(seq, frame(seq));
+		}
+
+		try (FrameLog log = new FrameLog(dir, SegmentSize, 4)) {
+			restore(log);
+			assertEquals(50, sequences.size());
+			for (int i = 0; i < 50; i++) {
+				assertEquals(i, (long) sequences.get(i));
+				assertArrayEquals(frame(i), frames.get(i));
+			}
+			// appending continues after the last restored record
+			for (long seq = 50; seq < 60; seq++)
+				log.append(seq, frame(seq));
+		}
+
+		try (FrameLog log = new FrameLog(dir, SegmentSize, 4)) {
+			restore(log);
+			assertEquals(60, sequences.size());
+			assertEquals(59, (long) sequences.get(59));
+			assertArrayEquals(frame(59), frames.get(59));
+		}
+	}
+
+	@Test
+	void testSegmentRotation() throws IOException
+	{
+		final int maxSegments = 3;
+		final long records = 2_000;
+		try (FrameLog log = new FrameLog(dir, SegmentSize, maxSegments)) {
+			restore(log);
+			for (long seq = 0; seq < records; seq++)
+				log.append(seq, frame(seq));
+		}
+		assertEquals(maxSegments, segmentFiles());
+
+		try (FrameLog log = new FrameLog(dir, SegmentSize, maxSegments)) {
+			restore(log);
+		}
+		// the oldest records got rotated out, the remaining ones are in order up to the last appended record
+		assertFalse(sequences.isEmpty());
+		assertTrue(sequences.get(0) > 0);
+		assertTrue(sequences.size() > (maxSegments - 1) * SegmentSize / (12 + 17));
+		for (int i = 0; i < sequences.size(); i++) {
+			final long expected = sequences.get(0) + i;
+			assertEquals(expected, (long) sequences.get(i));
+			assertArrayEquals(frame(expected), frames.get(i));
+		}
+		assertEquals(records - 1, (long) sequences.get(sequences.size() - 1));
+	}
+
+	@Test
+	void testClientPositions() throws IOException
+	{
+		try (FrameLog log = new FrameLog(dir, SegmentSize, 2)) {
+			log.completed("10.0.0.1", 42, 1000);
+			log.completed("10.0.0.2", 7, 2000);
+			log.completed("10.0.0.1", 43, 3000);
+			log.removeCompleted("10.0.0.2");
+		}
+		try (FrameLog log = new FrameLog(dir, SegmentSize, 2)) {
+			final long[] position = log.completed("10.0.0.1").orElseThrow();
+			assertEquals(43, position[0]);
+			assertEquals(3000, position[1]);
+			assertFalse(log.completed("10.0.0.2").isPresent());
+		}
+	}
+
+	private long segmentFiles() throws IOException
+	{
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(p -> p.getFileName().toString().startsWith("frames-")).count();
+		}
+	}
+}
@@ -1,6 +1,6 @@
 /*
     Calimero 2 - A library for KNX network access
-    Copyright (c) 2010, 2018 B. Malinowsky
+    Copyright (c) 2010, 2026 B. Malinowsky
 
     This program is free software; you can redistribute it and/or modify
     it under the terms of the GNU General Public License as published by
@@ -41,16 +41,21 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.lang.reflect.Proxy;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import tuwien.auto.calimero.FrameEvent;
 import tuwien.auto.calimero.GroupAddress;
 import tuwien.auto.calimero.IndividualAddress;
 import tuwien.auto.calimero.KNXAddress;
@@ -60,6 +65,7 @@ import tuwien.auto.calimero.cemi.CEMILData;
 import tuwien.auto.calimero.device.ios.InterfaceObject;
 import tuwien.auto.calimero.device.ios.InterfaceObjectServer;
 import tuwien.auto.calimero.internal.EventListeners;
+import tuwien.auto.calimero.knxnetip.KNXnetIPConnection;
 import tuwien.auto.calimero.knxnetip.util.DeviceDIB;
 import tuwien.auto.calimero.knxnetip.util.HPAI;
 import tuwien.auto.calimero.link.KNXNetworkLink;
@@ -152,6 +158,24 @@ class KnxServerGatewayTest
 		assertEquals("gateway", gw.getName());
 	}
 
+	@Test
+	void testSubnetDrainRate()
+	{
+		final SubnetDrainRate rate = new SubnetDrainRate(KNXMediumSettings.MEDIUM_TP1);
+		final double initial = rate.telegramsPerSecond();
+		assertTrue(initial >= 40 && initial <= 55, "TP1 drain rate " + initial);
+
+		// measured send completions slower than nominal lower the estimate
+		for (int i = 0; i < 100; i++)
+			rate.sent(9, 50_000_000);
+		assertEquals(20, rate.telegramsPerSecond(), 1);
+
+		// measured send completions faster than the medium allows are limited to the nominal duration
+		for (int i = 0; i < 200; i++)
+			rate.sent(9, 1_000);
+		assertEquals(initial, rate.telegramsPerSecond(), 1);
+	}
+
 	private final List<GroupAddress> addrList = new ArrayList<>();
 	private final Set<GroupAddress> addrSet = new HashSet<>();
 	private InterfaceObjectServer ios;
@@ -159,9 +183,17 @@ class KnxServerGatewayTest
 	@Test
 	void testAddressLookupPerformance()
 	{
-		// load address table for group address filtering
-		for (int i = 1; i < 100; i++)
-			addrList.add(new GroupAddress(0, 0, i));
+		for (final int entries : new int[] { 100, 1_000, 5_000, 20_000 })
+			addressLookupPerformance(entries);
+	}
+
+	private void addressLookupPerformance(final int entries)
+	{
+		addrList.clear();
+		addrSet.clear();
+		// load address table for group address filtering, use every other address to also hit misses
+		for (int i = 1; i <= entries; i++)
+			addrList.add(new GroupAddress(2 * i));
 
 		// fill address set
 		addrSet.addAll(addrList);
@@ -182,18 +214,121 @@ class KnxServerGatewayTest
 		ios.addInterfaceObject(InterfaceObject.ADDRESSTABLE_OBJECT);
 		ios.setProperty(InterfaceObject.ADDRESSTABLE_OBJECT, 1, PID.TABLE, 1, size, table);
 
-		final int loops = 100000;
-		long start = System.currentTimeMillis();
-		for (int i = 0; i < loops; ++i)
-			inGroupAddressTable(addrList.get(i % addrList.size()));
-		long end = System.currentTimeMillis();
-		System.out.println("group address table lookup: " + (end - start));
+		final GroupAddress[] lookups = new GroupAddress[1024];
+		for (int i = 0; i < lookups.length; i++)
+			lookups[i] = new GroupAddress(1 + (i * 37) % (2 * entries));
+
+		final long start = System.nanoTime();
+		final GroupAddressFilter filter = GroupAddressFilter.compile(ios.getProperty(InterfaceObject.ADDRESSTABLE_OBJECT,
+				1, PID.TABLE, 1, size));
+		final long compile = System.nanoTime() - start;
+
+		for (final GroupAddress ga : lookups) {
+			final boolean expected = addrSet.contains(ga);
+			assertEquals(expected, inGroupAddressTable(ga), ga.toString());
+			assertEquals(expected, filter.accept(ga.getRawAddress()), ga.toString());
+		}
+
+		// the linear table scan gets expensive with large tables, scale its loops accordingly
+		final int tableLoops = Math.max(1_000, 2_000_000 / entries);
+		final int loops = 1_000_000;
+		final long scan = measure(tableLoops, lookups, this::inGroupAddressTable);
+		final long set = measure(loops, lookups, this::inGroupAddressSet);
+		final long compiled = measure(loops, lookups, ga -> filter.accept(ga.getRawAddress()));
+		System.out.format("%,d table entries: compile filter %,d us, lookup IOS table scan %,d ns, set %,d ns, "
+				+ "compiled filter %,d ns%n", entries, compile / 1000, scan, set, compiled);
+	}
+
+	@Test
+	void testGroupAddressFilterUpdate()
+	{
+		final GroupAddress ga = new GroupAddress(1, 0, 1);
+		final GroupAddress other = new GroupAddress(1, 0, 2);
+		// without address table, the lazily compiled filter passes all addresses
+		assertTrue(gw.inGroupAddressTable(ga, 1));
+		assertTrue(gw.inGroupAddressTable(other, 1));
+
+		final InterfaceObjectServer ios = server.getInterfaceObjectServer();
+		ios.addInterfaceObject(InterfaceObject.ADDRESSTABLE_OBJECT);
+		ios.setProperty(InterfaceObject.ADDRESSTABLE_OBJECT, 1, PID.TABLE, 1, 1, new byte[] { 0x08, 0x01 });
+		assertTrue(gw.inGroupAddressTable(ga, 1));
+		assertFalse(gw.inGroupAddressTable(other, 1));
+
+		// a table write replaces the cached filter
+		ios.setProperty(InterfaceObject.ADDRESSTABLE_OBJECT, 1, PID.TABLE, 1, 1, new byte[] { 0x08, 0x02 });
+		assertFalse(gw.inGroupAddressTable(ga, 1));
+		assertTrue(gw.inGroupAddressTable(other, 1));
+	}
+
+	@Test
+	void testReplayBufferPerformance()
+	{
+		final int clients = 50;
+		final int events = 100_000;
+		final int disruptedAfter = events - 200;
+		final ReplayBuffer<FrameEvent> buffer = new ReplayBuffer<>(Duration.ofSeconds(30), 350);
+		final List<KNXnetIPConnection> connections = new ArrayList<>();
+		for (int i = 0; i < clients; i++) {
+			final KNXnetIPConnection c = connection(new InetSocketAddress("10.0.0." + (i + 1), 5555));
+			connections.add(c);
+			buffer.add(c);
+		}
 
-		start = System.currentTimeMillis();
+		final CEMILData ldata = new CEMILData(CEMILData.MC_LDATA_IND, new IndividualAddress(1), new GroupAddress(1),
+				new byte[] { 0, (byte) 0x80 }, Priority.LOW);
+		final List<FrameEvent> recorded = new ArrayList<>();
+		final long start = System.nanoTime();
+		for (int i = 0; i < events; i++) {
+			final FrameEvent fe = new FrameEvent(this, ldata);
+			final long seq = buffer.recordEvent(fe);
+			if (i >= events - 350)
+				recorded.add(fe);
+			// the first client stops completing events, e.g., due to a disrupted connection
+			for (int k = i < disruptedAfter ? 0 : 1; k < clients; k++)
+				buffer.completeEvent(connections.get(k), seq);
+		}
+		final long recordAndComplete = (System.nanoTime() - start) / events;
+
+		final KNXnetIPConnection reconnected = connection(new InetSocketAddress("10.0.0.1", 5555));
+		buffer.add(reconnected);
+		final long replayStart = System.nanoTime();
+		final List<FrameEvent> pending = buffer.replay(reconnected).events;
+		final long replay = System.nanoTime() - replayStart;
+
+		assertEquals(events - disruptedAfter, pending.size());
+		assertEquals(recorded.subList(recorded.size() - pending.size(), recorded.size()), pending);
+		System.out.format("replay buffer with %d clients: record & complete %,d ns/event, replay %d events %,d us%n",
+				clients, recordAndComplete, pending.size(), replay / 1000);
+	}
+
+	private static KNXnetIPConnection connection(final InetSocketAddress remote)
+	{
+		return (KNXnetIPConnection) Proxy.newProxyInstance(KNXnetIPConnection.class.getClassLoader(),
+				new Class<?>[] { KNXnetIPConnection.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getRemoteAddress": return remote;
+					case "getState": return KNXnetIPConnection.OK;
+					case "getName": return "test connection " + remote;
+					case "toString": return "test connection " + remote;
+					case "hashCode": return System.identityHashCode(proxy);
+					case "equals": return proxy == args[0];
+					default: return null;
+					}
+				});
+	}
+
+	// returns average lookup time in ns after warm-up
+	private static long measure(final int loops, final GroupAddress[] lookups, final Predicate<GroupAddress> lookup)
+	{
+		int hits = 0;
+		for (int i = 0; i < loops / 10; ++i)
+			hits += lookup.test(lookups[i & (lookups.length - 1)]) ? 1 : 0;
+		final long start = System.nanoTime();
 		for (int i = 0; i < loops; ++i)
-			inGroupAddressSet(addrList.get(i % addrList.size()));
-		end = System.currentTimeMillis();
-		System.out.println("group address set lookup: " + (end - start));
+			hits += lookup.test(lookups[i & (lookups.length - 1)]) ? 1 : 0;
+		final long end = System.nanoTime();
+		assertTrue(hits >= 0);
+		return (end - start) / loops;
 	}
 
 	// lookup performance using IOS get property
@@ -0,0 +1,211 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+package tuwien.auto.calimero.server.gateway;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+class RoutingFlowControlTest
+{
+	// a short interval keeps routing busy wait, throttle, and busy counter decrement in the range of a few ms
+	private static final Duration Interval = Duration.ofMillis(1);
+	private static final int Capacity = 3;
+
+	private final Logger logger = LoggerFactory.getLogger("RoutingFlowControlTest");
+	private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+	private final RoutingFlowControl flowControl = new RoutingFlowControl(scheduler, Capacity, logger, Interval);
+
+	// send times in ns, relative to test start
+	private final List<Long> sendTimes = Collections.synchronizedList(new ArrayList<>());
+	private final List<Integer> sent = Collections.synchronizedList(new ArrayList<>());
+	private final long start = System.nanoTime();
+
+	@AfterEach
+	void shutdown()
+	{
+		scheduler.shutdownNow();
+	}
+
+	private Runnable frame(final int id)
+	{
+		return () -> {
+			sendTimes.add(System.nanoTime() - start);
+			sent.add(id);
+		};
+	}
+
+	private void awaitSent(final int frames) throws InterruptedException
+	{
+		final long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (sent.size() < frames && System.nanoTime() < end)
+			Thread.sleep(2);
+	}
+
+	@Test
+	void testSendsRightAwayWithoutRoutingBusy()
+	{
+		final Thread caller = Thread.currentThread();
+		final List<Thread> senders = new ArrayList<>();
+		flowControl.send(() -> senders.add(Thread.currentThread()));
+		assertEquals(1, senders.size());
+		assertSame(caller, senders.get(0));
+		assertEquals(0, flowControl.busyCounter());
+		assertEquals(0, scheduler.getQueue().size());
+	}
+
+	@Test
+	void testRoutingBusyPausesSending() throws InterruptedException
+	{
+		final long busy = System.nanoTime() - start;
+		assertTrue(flowControl.routingBusy(50));
+		flowControl.send(frame(1));
+		assertEquals(List.of(), sent, "sent during routing busy wait time");
+		awaitSent(1);
+		assertEquals(List.of(1), sent);
+		final long waited = sendTimes.get(0) - busy;
+		assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(50), "sent after " + waited / 1_000_000 + " ms");
+	}
+
+	@Test
+	void testWaitTimeOnlyExtended()
+	{
+		assertTrue(flowControl.routingBusy(50));
+		// a shorter wait time does not shorten the current wait
+		assertFalse(flowControl.routingBusy(10));
+		assertTrue(flowControl.routingBusy(100));
+	}
+
+	@Test
+	void testBusyCounterCountsOncePerMinInterval() throws InterruptedException
+	{
+		// with the default interval, routing busy notifications within 10 ms are counted once
+		final RoutingFlowControl fc = new RoutingFlowControl(scheduler, Capacity, logger);
+		fc.routingBusy(100);
+		fc.routingBusy(100);
+		assertEquals(1, fc.busyCounter());
+		Thread.sleep(15);
+		fc.routingBusy(100);
+		assertEquals(2, fc.busyCounter());
+	}
+
+	@Test
+	void testBusyCounterDecrementsAfterThrottling() throws InterruptedException
+	{
+		flowControl.routingBusy(10);
+		Thread.sleep(3);
+		flowControl.routingBusy(10);
+		assertEquals(2, flowControl.busyCounter());
+		// wait 10 ms + random wait <= 20 ms + throttle 40 ms, then the counter decrements every 1 ms
+		Thread.sleep(100);
+		assertEquals(0, flowControl.busyCounter());
+		// without busy counter, frames are sent right away again
+		flowControl.send(frame(1));
+		assertEquals(List.of(1), sent);
+	}
+
+	@Test
+	void testFullQueueDropsOldestFrame() throws InterruptedException
+	{
+		flowControl.routingBusy(50);
+		for (int i = 0; i < 5; i++)
+			flowControl.send(frame(i));
+		assertTrue(flowControl.toString().contains("queued 3/3, dropped 2"), flowControl.toString());
+		awaitSent(3);
+		Thread.sleep(20);
+		assertEquals(List.of(2, 3, 4), sent);
+	}
+
+	@Test
+	void testThrottlePacesFrames() throws InterruptedException
+	{
+		final int frames = 10;
+		final RoutingFlowControl fc = new RoutingFlowControl(scheduler, frames, logger, Interval);
+		fc.routingBusy(10);
+		for (int i = 0; i < frames; i++)
+			fc.send(frame(i));
+		awaitSent(frames);
+		final List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < frames; i++)
+			expected.add(i);
+		assertEquals(expected, sent);
+		// while throttling, one frame is sent per interval
+		for (int i = 1; i < frames; i++) {
+			final long gap = sendTimes.get(i) - sendTimes.get(i - 1);
+			assertTrue(gap >= Interval.toNanos() / 2, "frames " + (i - 1) + " and " + i + " sent " + gap + " ns apart");
+		}
+	}
+
+	@Test
+	void testOneShotReleaseOnSharedScheduler() throws InterruptedException
+	{
+		final RoutingFlowControl other = new RoutingFlowControl(scheduler, Capacity, logger, Interval);
+		flowControl.routingBusy(100);
+		other.routingBusy(100);
+		for (int i = 0; i < Capacity; i++) {
+			flowControl.send(frame(i));
+			other.send(frame(10 + i));
+		}
+		// each flow control has a single release task pending, not one task per queued frame
+		assertEquals(2, scheduler.getQueue().size());
+		awaitSent(2 * Capacity);
+		assertEquals(2 * Capacity, sent.size());
+		Thread.sleep(20);
+		assertEquals(0, scheduler.getQueue().size());
+	}
+
+	@Test
+	void testLostMessagesInStat()
+	{
+		flowControl.lostMessages(3);
+		flowControl.lostMessages(2);
+		assertTrue(flowControl.toString().endsWith("lost by routers 5"), flowControl.toString());
+	}
+}
@@ -0,0 +1,182 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import tuwien.auto.calimero.server.knxnetip.HashedWheelTimer.Timeout;
+
+class HashedWheelTimerTest
+{
+	// a short tick lets deadlines span several wheel revolutions within a test
+	private static final Duration Tick = Duration.ofMillis(1);
+	private static final long Revolution = HashedWheelTimer.WheelSize * Tick.toMillis(); // [ms]
+
+	// fire times in ms since test start
+	private final BlockingQueue<Long> fired = new LinkedBlockingQueue<>();
+	private final HashedWheelTimer timer = new HashedWheelTimer(Tick);
+	private final long start = System.nanoTime();
+
+	private void record()
+	{
+		fired.add(elapsed());
+	}
+
+	private long elapsed()
+	{
+		return (System.nanoTime() - start) / 1_000_000;
+	}
+
+	private long awaitFired(final long maxWait) throws InterruptedException
+	{
+		final Long at = fired.poll(maxWait, TimeUnit.MILLISECONDS);
+		assertNotNull(at, "timeout did not fire");
+		return at;
+	}
+
+	@Test
+	void testFiresAfterDelay() throws InterruptedException
+	{
+		timer.schedule(this::record, Duration.ofMillis(50));
+		final long at = awaitFired(2000);
+		assertTrue(at >= 50, "fired early after " + at + " ms");
+		assertNull(fired.poll(100, TimeUnit.MILLISECONDS), "fired more than once");
+	}
+
+	@Test
+	void testCancel() throws InterruptedException
+	{
+		final Timeout timeout = timer.schedule(this::record, Duration.ofMillis(50));
+		timeout.cancel();
+		assertNull(fired.poll(300, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void testRescheduleLater() throws InterruptedException
+	{
+		final Timeout timeout = timer.schedule(this::record, Duration.ofMillis(50));
+		timeout.reschedule(Duration.ofMillis(300));
+		final long at = awaitFired(2000);
+		assertTrue(at >= 300, "fired at previous deadline after " + at + " ms");
+	}
+
+	@Test
+	void testRescheduleEarlier() throws InterruptedException
+	{
+		final Timeout timeout = timer.schedule(this::record, Duration.ofSeconds(10));
+		timeout.reschedule(Duration.ofMillis(50));
+		final long at = awaitFired(2000);
+		assertTrue(at >= 50 && at < 2000, "fired after " + at + " ms");
+	}
+
+	@Test
+	void testRescheduleRepeatedlyBeforeDeadline() throws InterruptedException
+	{
+		final Timeout timeout = timer.schedule(this::record, Duration.ofMillis(100));
+		// keeps extending the deadline, as received packets do for a connection timeout
+		for (int i = 0; i < 10; i++) {
+			Thread.sleep(20);
+			timeout.reschedule(Duration.ofMillis(100));
+		}
+		final long lastReschedule = elapsed();
+		final long at = awaitFired(2000);
+		assertTrue(at >= lastReschedule + 100 - 1, "fired at " + at + " ms, last rescheduled at " + lastReschedule);
+	}
+
+	@Test
+	void testRescheduleAfterExpiry() throws InterruptedException
+	{
+		final Timeout timeout = timer.schedule(this::record, Duration.ofMillis(20));
+		awaitFired(2000);
+		timeout.reschedule(Duration.ofMillis(50));
+		final long rescheduled = elapsed();
+		final long at = awaitFired(2000);
+		assertTrue(at >= rescheduled + 50 - 1, "fired at " + at + " ms, rescheduled at " + rescheduled);
+	}
+
+	@Test
+	void testCancelAfterReschedule() throws InterruptedException
+	{
+		final Timeout timeout = timer.schedule(this::record, Duration.ofSeconds(10));
+		timeout.reschedule(Duration.ofMillis(50));
+		timeout.cancel();
+		assertNull(fired.poll(300, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void testDeadlineSpanningRevolutions() throws InterruptedException
+	{
+		final long delay = 2 * Revolution + Revolution / 2;
+		timer.schedule(this::record, Duration.ofMillis(delay));
+		// its bucket is passed twice before the deadline
+		assertNull(fired.poll(2 * Revolution, TimeUnit.MILLISECONDS), "fired one revolution early");
+		final long at = awaitFired(5 * Revolution);
+		assertTrue(at >= delay, "fired early after " + at + " ms");
+	}
+
+	@Test
+	void testRescheduleAcrossRevolutions() throws InterruptedException
+	{
+		final Timeout timeout = timer.schedule(this::record, Duration.ofMillis(50));
+		timeout.reschedule(Duration.ofMillis(Revolution + 50));
+		final long at = awaitFired(5 * Revolution);
+		assertTrue(at >= Revolution + 50, "fired early after " + at + " ms");
+	}
+
+	@Test
+	void testTimeoutsFireInDeadlineOrder() throws InterruptedException
+	{
+		final BlockingQueue<Integer> order = new LinkedBlockingQueue<>();
+		for (final int delay : new int[] { 1200, 30, Math.toIntExact(Revolution + 30), 300 })
+			timer.schedule(() -> order.add(delay), Duration.ofMillis(delay));
+		final int[] expected = { 30, 300, Math.toIntExact(Revolution + 30), 1200 };
+		for (final int delay : expected) {
+			assertEquals(Integer.valueOf(delay), order.poll(5 * Revolution, TimeUnit.MILLISECONDS));
+		}
+		assertNull(order.poll(100, TimeUnit.MILLISECONDS));
+	}
+}
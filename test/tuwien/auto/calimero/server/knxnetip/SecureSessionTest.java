@@ -0,0 +1,114 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+class SecureSessionTest
+{
+	private static final int MaxLength = 99;
+
+	private final Random random = new Random(42);
+
+	private Key newKey()
+	{
+		final byte[] key = new byte[16];
+		random.nextBytes(key);
+		return new SecretKeySpec(key, "AES");
+	}
+
+	// one-shot AES-CBC of the zero-padded input, the MAC is the last cipher block
+	private static byte[] expectedMac(final Key key, final byte[] data, final int offset, final int length)
+		throws GeneralSecurityException
+	{
+		final byte[] padded = Arrays.copyOfRange(data, offset, offset + (length + 15) / 16 * 16);
+		Arrays.fill(padded, length, padded.length, (byte) 0);
+		final Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
+		cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(new byte[16]));
+		final byte[] encrypted = cipher.doFinal(padded);
+		return Arrays.copyOfRange(encrypted, encrypted.length - 16, encrypted.length);
+	}
+
+	@Test
+	void testCbcMacKnownAnswer() throws GeneralSecurityException
+	{
+		final Key key = newKey();
+		final byte[] data = new byte[MaxLength + 16];
+		random.nextBytes(data);
+		for (int length = 1; length <= MaxLength; length++)
+			assertArrayEquals(expectedMac(key, data, 0, length), SecureSession.cbcMac(key, data, 0, length),
+					"length " + length);
+	}
+
+	@Test
+	void testCbcMacAtOffset() throws GeneralSecurityException
+	{
+		final Key key = newKey();
+		final byte[] data = new byte[MaxLength + 16];
+		random.nextBytes(data);
+		final int offset = 7;
+		for (int length = 1; length <= MaxLength; length++)
+			assertArrayEquals(expectedMac(key, data, offset, length), SecureSession.cbcMac(key, data, offset, length),
+					"length " + length);
+	}
+
+	@Test
+	void testCbcMacAlternatingKeys() throws GeneralSecurityException
+	{
+		// the cipher of a thread is reused, and has to be re-initialized with the key of each MAC
+		final Key first = newKey();
+		final Key second = newKey();
+		final byte[] data = new byte[MaxLength + 16];
+		random.nextBytes(data);
+		for (int length = 1; length <= MaxLength; length++) {
+			final Key key = length % 2 == 0 ? first : second;
+			assertArrayEquals(expectedMac(key, data, 0, length), SecureSession.cbcMac(key, data, 0, length),
+					"length " + length);
+		}
+	}
+}
@@ -0,0 +1,220 @@
+/*
+    Calimero 2 - A library for KNX network access
+    Copyright (c) 2026 B. Malinowsky
+
+    This program is free software; you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+    Linking this library statically or dynamically with other modules is
+    making a combined work based on this library. Thus, the terms and
+    conditions of the GNU General Public License cover the whole
+    combination.
+
+    As a special exception, the copyright holders of this library give you
+    permission to link this library with independent modules to produce an
+    executable, regardless of the license terms of these independent
+    modules, and to copy and distribute the resulting executable under terms
+    of your choice, provided that you also meet, for each linked independent
+    module, the terms and conditions of the license of that module. An
+    independent module is a module which is not derived from or based on
+    this library. If you modify this library, you may extend this exception
+    to your version of the library, but you are not obligated to do so. If
+    you do not wish to do so, delete this exception statement from your
+    version.
+*/
+
+package tuwien.auto.calimero.server.knxnetip;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import tuwien.auto.calimero.KNXFormatException;
+import tuwien.auto.calimero.server.knxnetip.TcpEventLoop.FrameDecoder;
+import tuwien.auto.calimero.server.knxnetip.TcpEventLoop.SendQueue;
+
+class TcpEventLoopTest
+{
+	private final List<Integer> serviceTypes = new ArrayList<>();
+	private final List<byte[]> bodies = new ArrayList<>();
+
+	private static byte[] frame(final int serviceType, final int bodyLength)
+	{
+		final int total = 6 + bodyLength;
+		final byte[] frame = new byte[total];
+		frame[0] = 6;
+		frame[1] = 0x10;
+		frame[2] = (byte) (serviceType >> 8);
+		frame[3] = (byte) serviceType;
+		frame[4] = (byte) (total >> 8);
+		frame[5] = (byte) total;
+		for (int i = 6; i < total; i++)
+			frame[i] = (byte) (serviceType + i);
+		return frame;
+	}
+
+	private static byte[] concat(final byte[]... arrays)
+	{
+		final ByteArrayOutputStream os = new ByteArrayOutputStream();
+		for (final byte[] a : arrays)
+			os.writeBytes(a);
+		return os.toByteArray();
+	}
+
+	// receives data in chunks into the decoder, as a non-blocking channel read would do
+	private void receive(final FrameDecoder decoder, final byte[] data, final int chunk)
+		throws KNXFormatException, IOException
+	{
+		int offset = 0;
+		while (offset < data.length) {
+			final ByteBuffer buffer = decoder.buffer();
+			final int length = Math.min(Math.min(chunk, buffer.remaining()), data.length - offset);
+			buffer.put(data, offset, length);
+			offset += length;
+			decoder.decode((h, frame, body) -> {
+				serviceTypes.add(h.getServiceType());
+				bodies.add(Arrays.copyOfRange(frame, body, body + h.getTotalLength() - h.getStructLength()));
+			});
+		}
+	}
+
+	@Test
+	void testDecodePartialFrames() throws KNXFormatException, IOException
+	{
+		final byte[] first = frame(0x0420, 15);
+		final byte[] second = frame(0x0421, 4);
+		final byte[] third = frame(0x0530, 0);
+		final FrameDecoder decoder = new FrameDecoder(64);
+		for (final int chunk : new int[] { 1, 3, 7, 64 }) {
+			serviceTypes.clear();
+			bodies.clear();
+			receive(decoder, concat(first, second, third), chunk);
+			assertEquals(List.of(0x0420, 0x0421, 0x0530), serviceTypes, "chunk size " + chunk);
+			assertArrayEquals(Arrays.copyOfRange(first, 6, first.length), bodies.get(0));
+			assertArrayEquals(Arrays.copyOfRange(second, 6, second.length), bodies.get(1));
+			assertEquals(0, bodies.get(2).length);
+			// nothing left over for the next frame
+			assertEquals(64, decoder.buffer().remaining());
+		}
+	}
+
+	@Test
+	void testReceiveBufferGrowsForLargeFrame() throws KNXFormatException, IOException
+	{
+		final byte[] large = frame(0x0420, 1000);
+		final byte[] small = frame(0x0421, 10);
+		final FrameDecoder decoder = new FrameDecoder(16);
+		receive(decoder, concat(small, large, small), 100);
+		assertEquals(List.of(0x0421, 0x0420, 0x0421), serviceTypes);
+		assertArrayEquals(Arrays.copyOfRange(large, 6, large.length), bodies.get(1));
+		assertTrue(decoder.buffer().capacity() >= large.length);
+	}
+
+	@Test
+	void testInvalidFrameLength()
+	{
+		final byte[] invalid = frame(0x0420, 0);
+		invalid[5] = 5;
+		final FrameDecoder decoder = new FrameDecoder(16);
+		assertThrows(KNXFormatException.class, () -> receive(decoder, invalid, 16));
+	}
+
+	// accepts a configurable number of bytes per write
+	private static final class ThrottledChannel implements GatheringByteChannel
+	{
+		final ByteArrayOutputStream written = new ByteArrayOutputStream();
+		int accept;
+
+		@Override
+		public long write(final ByteBuffer[] srcs, final int offset, final int length)
+		{
+			long total = 0;
+			for (int i = offset; i < offset + length && accept > 0; i++) {
+				final ByteBuffer src = srcs[i];
+				final int n = Math.min(accept, src.remaining());
+				final byte[] data = new byte[n];
+				src.get(data);
+				written.writeBytes(data);
+				accept -= n;
+				total += n;
+			}
+			return total;
+		}
+
+		@Override
+		public long write(final ByteBuffer[] srcs)
+		{
+			return write(srcs, 0, srcs.length);
+		}
+
+		@Override
+		public int write(final ByteBuffer src)
+		{
+			return (int) write(new ByteBuffer[] { src });
+		}
+
+		@Override
+		public boolean isOpen()
+		{
+			return true;
+		}
+
+		@Override
+		public void close() {}
+	}
+
+	@Test
+	void testSendQueueStalledPeer() throws IOException
+	{
+		final ThrottledChannel channel = new ThrottledChannel();
+		final SendQueue queue = new SendQueue(channel, 100);
+		final byte[] first = frame(0x0420, 34);
+		final byte[] second = frame(0x0421, 34);
+		final byte[] third = frame(0x0422, 34);
+
+		// peer accepts part of the first frame only
+		channel.accept = 10;
+		assertTrue(queue.add(first));
+		assertFalse(queue.flush());
+		assertEquals(30, queue.queuedBytes());
+
+		// peer stalls, the queue limit is reached
+		assertTrue(queue.add(second));
+		assertFalse(queue.flush());
+		assertEquals(70, queue.queuedBytes());
+		assertFalse(queue.add(third));
+		assertEquals(70, queue.queuedBytes());
+
+		// peer is writable again, everything gets written in order
+		channel.accept = Integer.MAX_VALUE;
+		assertTrue(queue.flush());
+		assertEquals(0, queue.queuedBytes());
+		assertEquals(0, queue.size());
+		assertTrue(queue.add(third));
+		assertTrue(queue.flush());
+		assertArrayEquals(concat(first, second, third), channel.written.toByteArray());
+	}
+}